@@ -1,5 +1,9 @@
 package org.example.Performance;
 
+import org.example.Performance.image.BulkRecolor;
+import org.example.Performance.image.RecolorKernels;
+import org.example.Performance.image.TileScheduler;
+
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.File;
@@ -8,6 +12,13 @@ import java.util.List;
 
 // latency = time taken to execute a task
 // This class will contain examples of multithreading for performance improvement
+// Pixels are recolored a row at a time on the backing arrays, see org.example.Performance.image.RecolorBenchmark
+// Fork/join tiles - the image is split recursively into tiles processed by a shared work-stealing pool
+// SIMD - with --add-modules jdk.incubator.vector rows are recolored by the Vector API kernel
+// Batch mode - image.BatchImageProcessor recolors whole directories with a decode -> recolor -> encode pipeline
+// Filters - image.filter.FilterChain runs the recolor rule together with other filters in one fused pass
+// Streaming - image.StreamingRecolor recolors images larger than the heap strip by strip
+// Service - image.RecolorService answers POST /recolor with admission control on a shared bounded pool
 public class LatencyMultithreading {
     public static final String SOURCE_CLASSPATH = "XXXXXXXXXX";
     public static final String DESTINATION_FILE = "XXXXXXXXXXX";
@@ -25,33 +36,53 @@ public class LatencyMultithreading {
         );
 
         // Recolor image
-        // Measure time taken
+        // Measure time taken - a single cold run including JIT compilation,
+        // compare the variants with image.RecolorJmhBenchmark instead
         // Single threaded
         // Multi threaded
-        Long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 //        recolorSingleThreaded(image, resultImage);
-        recolorMultiThreaded(image, resultImage, 4);
-        Long endTime = System.currentTimeMillis();
+//        recolorMultiThreaded(image, resultImage, 4);
+        recolorForkJoin(image, resultImage);
+        long endTime = System.nanoTime();
 
-        long duration = endTime - startTime;
-        System.out.println("Single thread duration: " + duration + " ms");
+        long duration = (endTime - startTime) / 1_000_000;
+        System.out.println("Fork/join duration: " + duration + " ms");
 
         File outputFile = new File(DESTINATION_FILE);
         ImageIO.write(resultImage, "jpg", outputFile);
 
     }
 
+    // Recolor image with tiles scheduled on the shared fork/join pool
+    public static void recolorForkJoin(BufferedImage image, BufferedImage resultImage) {
+        recolorForkJoin(image, resultImage, TileScheduler.shared());
+    }
+
+    // Recolor image with the given tile size and pool, the pool is reused for every image
+    public static void recolorForkJoin(BufferedImage image, BufferedImage resultImage, TileScheduler scheduler) {
+        scheduler.forEachTile(0, 0, image.getWidth(), image.getHeight(),
+                (left, top, width, height) -> recolorImageBulk(image, resultImage, left, top, width, height));
+    }
+
+    // Recolor image in tasks of rowsPerTask full rows each, more rows per task means fewer tasks to schedule,
+    // fewer rows means better balancing between the threads
+    public static void recolorRowBlocks(BufferedImage image, BufferedImage resultImage, int rowsPerTask) {
+        recolorForkJoin(image, resultImage, TileScheduler.shared().withTileSize(TileScheduler.DEFAULT_TILE_WIDTH, rowsPerTask));
+    }
+
     // Recolor image using multiple threads
     public static void recolorMultiThreaded(BufferedImage image, BufferedImage resultImage, int numberOfThreads) {
         List<Thread> threads = new java.util.ArrayList<>();
         int width = image.getWidth();
-        int height = image.getHeight() / numberOfThreads;
+        // Round up, so the remainder rows are covered by the last strip (recolorImage clips it to the image)
+        int height = (image.getHeight() + numberOfThreads - 1) / numberOfThreads;
 
         for (int i = 0; i < numberOfThreads; i++) {
             final int threadMultiplier = i;
             Thread thread = new Thread(() -> {
                 int topCorner = threadMultiplier * height;
-                recolorImage(image, resultImage, 0, topCorner, width, height);
+                recolorImageBulk(image, resultImage, 0, topCorner, width, height);
             });
             threads.add(thread);
         }
@@ -71,13 +102,21 @@ public class LatencyMultithreading {
 
     // Recolor image using a single thread
     public static void recolorSingleThreaded(BufferedImage image, BufferedImage resultImage) {
-        recolorImage(image, resultImage, 0, 0, image.getWidth(), image.getHeight());
+        recolorImageBulk(image, resultImage, 0, 0, image.getWidth(), image.getHeight());
+    }
+
+    // Recolor a portion of the image working on whole rows of the backing arrays (see BulkRecolor)
+    // with the kernel selected by -Drecolor.kernel=auto|scalar|vector
+    public static void recolorImageBulk(BufferedImage image, BufferedImage resultImage, int leftCorner, int topCorner, int width, int height) {
+        BulkRecolor.recolor(image, resultImage, leftCorner, topCorner, width, height, RecolorKernels.defaultKernel());
     }
 
-    // Recolor a portion of the image
+    // Recolor a portion of the image pixel by pixel, reference implementation for the bulk path
     public static void recolorImage(BufferedImage image, BufferedImage resultImage, int leftCorner, int topCorner, int width, int height) {
-        for (int x = leftCorner; x < leftCorner + width && x < image.getWidth(); x++) {
-            for (int y = topCorner; y < topCorner + height && y < image.getHeight(); y++) {
+        // Rows on the outside - the raster is stored row by row, so x has to be the inner loop
+        // to read neighbouring pixels from the same cache line (see image.TraversalBenchmark)
+        for (int y = topCorner; y < topCorner + height && y < image.getHeight(); y++) {
+            for (int x = leftCorner; x < leftCorner + width && x < image.getWidth(); x++) {
                 recolorPixes(image, resultImage, x, y);
             }
         }
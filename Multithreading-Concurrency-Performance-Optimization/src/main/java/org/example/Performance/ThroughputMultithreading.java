@@ -1,107 +1,381 @@
 package org.example.Performance;
 
-import com.sun.net.httpserver.HttpExchange;
-import com.sun.net.httpserver.HttpHandler;
-import com.sun.net.httpserver.HttpServer;
+import org.example.Performance.cache.BoundedCache;
+import org.example.Performance.metrics.ServerMetrics;
+import org.example.Performance.search.CorpusRegistry;
+import org.example.Performance.search.CorpusStorage;
+import org.example.Performance.search.MappedCorpus;
+import org.example.Performance.search.SearchMode;
+import org.example.Performance.search.SubstringWordCounter;
+import org.example.Performance.search.WordCounters;
+import org.example.Performance.server.EndpointHandler;
+import org.example.Performance.server.InstrumentedHandler;
+import org.example.Performance.server.MetricsHandler;
+import org.example.Performance.server.QueryParameters;
+import org.example.Performance.server.ResponseBuffer;
+import org.example.Performance.server.ServerConfig;
+import org.example.Performance.server.ServerEngine;
 
 import java.io.IOException;
-import java.io.OutputStream;
-import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 
 // Measured with JMeter
 // With one thread - throughput = 970 req/sec
 // With two threads - throughput = 1650 req/sec
 // With four threads - throughput = 3121 req/sec
+// The same scenario can be replayed without JMeter with org.example.Performance.loadtest.LoadGenerator,
+// which also reports p50/p99/p99.9 latency and supports a fixed arrival rate (open loop) mode
 
 // throughput = number of tasks completed in a given time
 // This class will contain examples of multithreading for performance improvement
 // Thread pooling - reusing a fixed number of threads to execute multiple tasks
+// Indexing - the corpus is tokenized once at startup so /search is answered with a map lookup instead of a full scan
+// Copy-on-write corpora - several named texts, each reindexed in the background and swapped atomically when its file changes
+// Metrics - GET /metrics exposes per-endpoint request counters, latency histograms and executor gauges for Prometheus
+// Memory mapping (--storage=mapped) - the corpus is searched as bytes straight from the page cache, no heap copy
 public class ThroughputMultithreading {
     // Path to the source text file
     public static final String SOURCE_CLASSPATH = "XXXXXXXX";
+    // Name of the corpus when the server is started for a single text
+    public static final String DEFAULT_CORPUS = "default";
 
-    // Number of threads in the thread pool
-    public static final int NUMBER_OF_THREADS = 4;
-
+    // Usage: --engine=fixed_pool|virtual_threads|nio --threads=4 --port=8000 --search-mode=index|exact_substring|parallel_substring
+    //        --corpus=path --cache=none|lru|tiny_lfu --cache-size=1024 --chunk-size=65536 --storage=heap|mapped
+    //        --corpora=war_and_peace=path,other=path --reload=true|false
     public static void main(String[] args) throws IOException {
-        // Read the entire text file into a string
-        String text = new String(Files.readAllBytes(Paths.get(SOURCE_CLASSPATH)));
+        ServerConfig config = ServerConfig.fromArgs(args, SOURCE_CLASSPATH);
+
+        // Every corpus is loaded and indexed once here, later reloads run in the background
+        CorpusRegistry corpusRegistry = new CorpusRegistry(path -> loadCorpus(path, config));
+        for (Map.Entry<String, Path> corpus : config.getCorpora().entrySet()) {
+            corpusRegistry.register(corpus.getKey(), corpus.getValue());
+        }
+        if (config.isReload()) {
+            corpusRegistry.startWatching();
+        }
 
         // Start the HTTP server
-        startServer(text);
+        startServer(corpusRegistry, config);
+        System.out.println("Search server started: " + config);
+    }
+
+    // Load a corpus file with the storage, search mode and cache from the configuration
+    public static WordCounters loadCorpus(Path path, ServerConfig config) throws IOException {
+        WordCounters wordCounters;
+        if (config.getStorage() == CorpusStorage.MAPPED) {
+            // Map the file and search its bytes directly - no copy of the text on the heap
+            MappedCorpus corpus = MappedCorpus.open(path);
+            wordCounters = WordCounters.forMappedCorpus(corpus, config.getSearchMode(), config.getChunkSize());
+        } else {
+            // Read the entire text file into a string
+            String text = new String(Files.readAllBytes(path));
+            wordCounters = WordCounters.forText(text, config.getSearchMode(), config.getChunkSize());
+        }
+        enableCache(wordCounters, config);
+        return wordCounters;
+    }
+
+    // Popular words are answered from a bounded cache instead of scanning the text again
+    // Every corpus (and every reloaded version of it) gets its own cache, so stale counts are never served
+    private static void enableCache(WordCounters wordCounters, ServerConfig config) {
+        if (config.getCachePolicy() != null) {
+            wordCounters.enableCache(new BoundedCache<>(config.getCachePolicy(), config.getCacheSize()));
+        }
+    }
+
+    // Method to start the HTTP server with the default configuration
+    public static ServerEngine startServer(String text) throws IOException {
+        return startServer(text, new ServerConfig(SOURCE_CLASSPATH));
+    }
+
+    // Method to start the HTTP server for a text on the heap
+    public static ServerEngine startServer(String text, ServerConfig config) throws IOException {
+        WordCounters wordCounters = WordCounters.forText(text, config.getSearchMode(), config.getChunkSize());
+        enableCache(wordCounters, config);
+        return startServer(CorpusRegistry.of(DEFAULT_CORPUS, wordCounters), config);
     }
 
     // Method to start the HTTP server
-    public static void startServer(String text) throws IOException {
-        // Create an HTTP server listening on port 8000
-        HttpServer server = HttpServer.create(new InetSocketAddress(8000), 0);
+    public static ServerEngine startServer(CorpusRegistry corpusRegistry, ServerConfig config) throws IOException {
+        // Create the engine selected in the configuration, listening on port 8000 by default
+        // fixed_pool - handles multiple requests concurrently with a fixed number of threads
+        // virtual_threads - one virtual thread per request
+        // nio - non-blocking event loops, one per thread
+        ServerEngine server = ServerEngine.create(config);
+        ServerMetrics metrics = new ServerMetrics();
+        // Counters are shared by all endpoints so every corpus is indexed only once
         // Create a context for handling search requests
-        server.createContext("/search", new WordCountHandler(text));
-        // Create a thread pool executor
-        // it allows to handle multiple requests concurrently with a fixed number of threads
-        Executor executor = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
-        // Set the executor for the server
-        server.setExecutor(executor);
+        addEndpoint(server, metrics, "/search", new WordCountHandler(corpusRegistry));
+        // Create a context for handling many words in one request
+        addEndpoint(server, metrics, "/search/batch", new BatchWordCountHandler(corpusRegistry));
+        // Hit, miss and eviction counters for sizing the cache
+        if (config.getCachePolicy() != null) {
+            addEndpoint(server, metrics, "/search/cache", new CacheStatsHandler(corpusRegistry));
+        }
+        // Request counters, latency histograms and executor gauges for Prometheus, scrapes are not counted themselves
+        server.registerMetrics(metrics);
+        server.addEndpoint("/metrics", new MetricsHandler(metrics));
         // Start the server
         server.start();
+        return server;
+    }
+
+    // Every endpoint records its throughput and latency under its path
+    private static void addEndpoint(ServerEngine server, ServerMetrics metrics, String path, EndpointHandler handler) {
+        server.addEndpoint(path, new InstrumentedHandler(handler, metrics.forEndpoint(path)));
     }
 
     // Handler for counting word occurrences
-    public static class WordCountHandler implements HttpHandler {
-        // The text in which to count word occurrences
-        private String text;
+    // Request format: /search?word=<word>[&mode=index|exact_substring|parallel_substring][&corpus=<name>]
+    // The optional mode parameter overrides the server default so both modes can be compared on the same server
+    // Without the corpus parameter the first configured corpus is searched
+    public static class WordCountHandler extends EndpointHandler {
+        // Counters for every corpus and search mode
+        private final CorpusRegistry corpusRegistry;
 
         public WordCountHandler(String text) {
-            this.text = text;
+            this(text, SearchMode.INDEX);
+        }
+
+        public WordCountHandler(String text, SearchMode defaultMode) {
+            this(WordCounters.forText(text, defaultMode));
         }
 
+        public WordCountHandler(WordCounters wordCounters) {
+            this(CorpusRegistry.of(DEFAULT_CORPUS, wordCounters));
+        }
+
+        public WordCountHandler(CorpusRegistry corpusRegistry) {
+            this.corpusRegistry = corpusRegistry;
+        }
+
+        // Allocation light request path: the query is scanned by index instead of split(),
+        // the mode is matched in place and the count is encoded straight into the reused response buffer
+        // The only allocation left is the word itself, needed as a key for the index lookup
         @Override
-        public void handle(HttpExchange exchange) throws IOException {
-            // Extract the query from the request URI
-            String query = exchange.getRequestURI().getQuery();
-            // Split the query into key and value
-            String[] keyValue = query.split("=");
-            // Validate the action
-            String word = keyValue[1];
-            // Validate the action
-            String action = keyValue[0];
-            // If the action is not "word", return a 400 Bad Request response
-            if (!action.equals("word")) {
-                exchange.sendResponseHeaders(400, 0);
-                return;
+        public void respond(String method, String query, byte[] body, ResponseBuffer response) {
+            // If there is no "word" parameter, return a 400 Bad Request response
+            int wordStart = QueryParameters.valueStart(query, "word");
+            if (wordStart < 0) {
+                throw new IllegalArgumentException("Missing word parameter");
             }
-            // Count the occurrences of the word in the text
-            long count = countWordOccurrences(word, text);
+            String word = query.substring(wordStart, QueryParameters.valueEnd(query, wordStart));
 
-            // Send the response with the count
-            byte [] response = Long.toString(count).getBytes();
-            exchange.sendResponseHeaders(200, response.length);
-            OutputStream outputStream = exchange.getResponseBody();
-            outputStream.write(response);
-            outputStream.close();
+            // Unknown mode results in 400 Bad Request
+            SearchMode mode = null;
+            int modeStart = QueryParameters.valueStart(query, "mode");
+            if (modeStart >= 0) {
+                mode = SearchMode.fromString(query, modeStart, QueryParameters.valueEnd(query, modeStart));
+            }
+
+            // The counters are read once, a concurrent reload does not affect this request
+            String corpus = QueryParameters.value(query, "corpus");
+            long count = corpusRegistry.get(corpus).forMode(mode).count(word);
+
+            // Response with the count
+            response.append(count);
         }
 
         // Method to count occurrences of a word in the text
         public static long countWordOccurrences(String word, String text) {
-            // Initialize count and index
-            long count = 0;
-            int index = 0;
-
-            // Loop to find all occurrences of the word
-            while (index >= 0) {
-                index = text.indexOf(word, index);
-                if (index >= 0) {
-                    count++;
-                    index++;
+            return SubstringWordCounter.countWordOccurrences(word, text);
+        }
+
+    }
+
+    // Handler reporting cache statistics of a corpus as "name value" lines
+    // Request format: /search/cache[?corpus=<name>]
+    public static class CacheStatsHandler extends EndpointHandler {
+        private final CorpusRegistry corpusRegistry;
+
+        public CacheStatsHandler(CorpusRegistry corpusRegistry) {
+            this.corpusRegistry = corpusRegistry;
+        }
+
+        @Override
+        public void respond(String method, String query, byte[] body, ResponseBuffer response) {
+            BoundedCache<?, ?> cache = corpusRegistry.get(QueryParameters.value(query, "corpus")).getCache();
+            if (cache == null) {
+                throw new IllegalArgumentException("Cache is disabled");
+            }
+            response.append("hits ").append(cache.getHitCount()).append((byte) '\n')
+                    .append("misses ").append(cache.getMissCount()).append((byte) '\n')
+                    .append("evictions ").append(cache.getEvictionCount()).append((byte) '\n')
+                    .append("hit_ratio ").append(Double.toString(cache.getHitRatio())).append((byte) '\n')
+                    .append("size ").append(cache.size()).append((byte) '\n')
+                    .append("maximum_size ").append(cache.getMaximumSize()).append((byte) '\n');
+        }
+    }
+
+    // Handler for counting occurrences of many words in one request
+    // Request format: POST /search/batch[?mode=index|exact_substring|parallel_substring][&corpus=<name>]
+    // The body is either a newline separated list of words or a JSON array of strings
+    // The response uses the same format: "word<TAB>count" lines or a JSON object {"word": count, ...}
+    // In the substring modes the whole batch is answered with a single pass over the text
+    public static class BatchWordCountHandler extends EndpointHandler {
+        // Upper bounds per request, the matcher automaton has one state per character of the batch
+        // and the parallel scan re-reads the longest word at every chunk border
+        private static final int MAX_WORDS = 10_000;
+        private static final int MAX_WORD_LENGTH = 256;
+        private static final int MAX_TOTAL_LENGTH = 256 * 1024;
+
+        private final CorpusRegistry corpusRegistry;
+
+        public BatchWordCountHandler(CorpusRegistry corpusRegistry) {
+            this.corpusRegistry = corpusRegistry;
+        }
+
+        @Override
+        public void respond(String method, String query, byte[] body, ResponseBuffer response) {
+            if (!method.equals("POST")) {
+                throw new IllegalArgumentException("Batch search requires POST");
+            }
+
+            String modeParameter = QueryParameters.value(query, "mode");
+            SearchMode mode = modeParameter == null ? null : SearchMode.fromString(modeParameter);
+            WordCounters wordCounters = corpusRegistry.get(QueryParameters.value(query, "corpus"));
+
+            String content = new String(body, StandardCharsets.UTF_8).trim();
+            boolean json = content.startsWith("[");
+            List<String> words = json ? parseJsonArray(content) : parseLines(content);
+            if (words.size() > MAX_WORDS) {
+                throw new IllegalArgumentException("Too many words: " + words.size());
+            }
+            int totalLength = 0;
+            for (String word : words) {
+                if (word.length() > MAX_WORD_LENGTH) {
+                    throw new IllegalArgumentException("Word longer than " + MAX_WORD_LENGTH + " characters");
+                }
+                totalLength += word.length();
+            }
+            if (totalLength > MAX_TOTAL_LENGTH) {
+                throw new IllegalArgumentException("Too many characters: " + totalLength);
+            }
+
+            long[] counts = wordCounters.forMode(mode).countAll(words);
+
+            if (json) {
+                response.append((byte) '{');
+                for (int i = 0; i < words.size(); i++) {
+                    if (i > 0) {
+                        response.append((byte) ',');
+                    }
+                    appendJsonString(response, words.get(i)).append((byte) ':').append(counts[i]);
+                }
+                response.append((byte) '}');
+            } else {
+                for (int i = 0; i < words.size(); i++) {
+                    response.append(words.get(i)).append((byte) '\t').append(counts[i]).append((byte) '\n');
                 }
             }
-            return count;
         }
 
+        // One word per line, blank lines are skipped
+        private static List<String> parseLines(String content) {
+            List<String> words = new ArrayList<>();
+            for (String line : content.split("\r?\n")) {
+                String word = line.trim();
+                if (!word.isEmpty()) {
+                    words.add(word);
+                }
+            }
+            return words;
+        }
+
+        // Minimal parser for a JSON array of strings, e.g. ["war", "peace"]
+        private static List<String> parseJsonArray(String content) {
+            List<String> words = new ArrayList<>();
+            int index = skipWhitespace(content, 1);
+            if (index < content.length() && content.charAt(index) == ']') {
+                return words;
+            }
+            while (true) {
+                if (index >= content.length() || content.charAt(index) != '"') {
+                    throw new IllegalArgumentException("Expected a string at " + index);
+                }
+                StringBuilder word = new StringBuilder();
+                index++;
+                while (true) {
+                    if (index >= content.length()) {
+                        throw new IllegalArgumentException("Unterminated string");
+                    }
+                    char character = content.charAt(index++);
+                    if (character == '"') {
+                        break;
+                    }
+                    if (character == '\\') {
+                        if (index >= content.length()) {
+                            throw new IllegalArgumentException("Unterminated escape");
+                        }
+                        char escaped = content.charAt(index++);
+                        switch (escaped) {
+                            case 'n' -> word.append('\n');
+                            case 't' -> word.append('\t');
+                            case 'r' -> word.append('\r');
+                            case 'b' -> word.append('\b');
+                            case 'f' -> word.append('\f');
+                            case 'u' -> {
+                                if (index + 4 > content.length()) {
+                                    throw new IllegalArgumentException("Invalid unicode escape");
+                                }
+                                word.append((char) Integer.parseInt(content.substring(index, index + 4), 16));
+                                index += 4;
+                            }
+                            default -> word.append(escaped);
+                        }
+                    } else {
+                        word.append(character);
+                    }
+                }
+                words.add(word.toString());
+
+                index = skipWhitespace(content, index);
+                if (index >= content.length()) {
+                    throw new IllegalArgumentException("Unterminated array");
+                }
+                char separator = content.charAt(index);
+                if (separator == ']') {
+                    return words;
+                }
+                if (separator != ',') {
+                    throw new IllegalArgumentException("Expected , or ] at " + index);
+                }
+                index = skipWhitespace(content, index + 1);
+            }
+        }
+
+        private static int skipWhitespace(String content, int index) {
+            while (index < content.length() && Character.isWhitespace(content.charAt(index))) {
+                index++;
+            }
+            return index;
+        }
+
+        private static ResponseBuffer appendJsonString(ResponseBuffer response, String value) {
+            response.append((byte) '"');
+            // Characters between escapes are appended as whole runs
+            int runStart = 0;
+            for (int i = 0; i < value.length(); i++) {
+                char character = value.charAt(i);
+                if (character != '"' && character != '\\' && character >= 0x20) {
+                    continue;
+                }
+                response.append(value.substring(runStart, i));
+                if (character < 0x20) {
+                    response.append(String.format("\\u%04x", (int) character));
+                } else {
+                    response.append((byte) '\\').append((byte) character);
+                }
+                runStart = i + 1;
+            }
+            response.append(runStart == 0 ? value : value.substring(runStart));
+            return response.append((byte) '"');
+        }
     }
 }
@@ -0,0 +1,127 @@
+package org.example.Performance.cache;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+// Concurrent cache holding at most maximumSize entries, the eviction policy is pluggable
+// Values live in a ConcurrentHashMap, so hits are lock-free.
+// The policy bookkeeping is guarded by a single lock: misses always take it, hits only try it -
+// when the lock is busy the access is not recorded (like a lossy read buffer), so hot keys never contend
+// Counters are LongAdders to keep the hit path free of shared writes
+public class BoundedCache<K, V> {
+    private final ConcurrentHashMap<K, V> data = new ConcurrentHashMap<>();
+    private final EvictionPolicy<K> policy;
+    private final ReentrantLock policyLock = new ReentrantLock();
+    private final int maximumSize;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public BoundedCache(EvictionPolicyType policyType, int maximumSize) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("Maximum size must be positive: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        this.policy = EvictionPolicy.create(policyType, maximumSize);
+    }
+
+    // Return the cached value or compute it with the loader
+    // The loader runs outside of any lock, concurrent misses for the same key may compute it more than once
+    public V get(K key, Function<K, V> loader) {
+        V value = getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+        value = loader.apply(key);
+        put(key, value);
+        return value;
+    }
+
+    // Return the cached value or null, counts as a hit or a miss
+    public V getIfPresent(K key) {
+        V value = data.get(key);
+        if (value == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        if (policyLock.tryLock()) {
+            try {
+                // The key may have been evicted between the read and the lock
+                if (data.containsKey(key)) {
+                    policy.recordAccess(key);
+                }
+            } finally {
+                policyLock.unlock();
+            }
+        }
+        return value;
+    }
+
+    public void put(K key, V value) {
+        policyLock.lock();
+        try {
+            if (data.replace(key, value) != null) {
+                policy.recordAccess(key);
+                return;
+            }
+            List<K> evicted = policy.add(key);
+            boolean admitted = true;
+            for (K victim : evicted) {
+                if (victim.equals(key)) {
+                    admitted = false;
+                } else {
+                    data.remove(victim);
+                }
+                evictions.increment();
+            }
+            if (admitted) {
+                data.put(key, value);
+            }
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    public void invalidate(K key) {
+        policyLock.lock();
+        try {
+            if (data.remove(key) != null) {
+                policy.remove(key);
+            }
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    // Keys evicted or rejected by the policy
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public double getHitRatio() {
+        long hitCount = getHitCount();
+        long requests = hitCount + getMissCount();
+        return requests == 0 ? 0 : (double) hitCount / requests;
+    }
+
+    public int size() {
+        return data.size();
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+}
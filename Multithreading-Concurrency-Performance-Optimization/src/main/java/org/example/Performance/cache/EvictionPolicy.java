@@ -0,0 +1,26 @@
+package org.example.Performance.cache;
+
+import java.util.List;
+
+// Decides which keys stay in a BoundedCache
+// Policies are not thread safe, BoundedCache calls them only while holding its policy lock
+public interface EvictionPolicy<K> {
+
+    // Called when a cached key was read
+    void recordAccess(K key);
+
+    // Called when a new key is inserted, returns the keys which have to leave the cache
+    // The result may contain the new key itself when the policy decides not to admit it
+    List<K> add(K key);
+
+    // Called when a key is removed from the cache explicitly
+    void remove(K key);
+
+    // Create a policy of the given type for a cache holding at most maximumSize keys
+    static <K> EvictionPolicy<K> create(EvictionPolicyType type, int maximumSize) {
+        return switch (type) {
+            case LRU -> new LruPolicy<>(maximumSize);
+            case TINY_LFU -> new TinyLfuPolicy<>(maximumSize);
+        };
+    }
+}
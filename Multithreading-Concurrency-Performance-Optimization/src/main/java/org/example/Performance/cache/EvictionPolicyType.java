@@ -0,0 +1,15 @@
+package org.example.Performance.cache;
+
+// Available eviction policies
+// LRU - evicts the least recently used key, simple but a burst of one-off keys flushes the whole cache
+// TINY_LFU - W-TinyLFU: small LRU window for new keys, segmented LRU main area, and a frequency sketch
+//            deciding if a key leaving the window is worth more than the main area victim, good for skewed traffic
+public enum EvictionPolicyType {
+    LRU,
+    TINY_LFU;
+
+    // Parse policy from a command line value, e.g. "lru" or "tiny-lfu"
+    public static EvictionPolicyType fromString(String value) {
+        return valueOf(value.trim().toUpperCase().replace('-', '_'));
+    }
+}
@@ -0,0 +1,68 @@
+package org.example.Performance.cache;
+
+// Count-Min sketch estimating how often a key was seen recently, used by TinyLfuPolicy
+// Every key updates one counter in each of 4 rows, the estimate is the smallest of them
+// Counters saturate at 15 and all of them are halved after sampleSize increments,
+// so old popularity fades away and the sketch adapts to changes in traffic
+class FrequencySketch {
+    private static final int ROWS = 4;
+    private static final int MAX_FREQUENCY = 15;
+    private static final int[] SEEDS = {0x97cb3127, 0xb24f7ef1, 0x6ce19a35, 0x1d3c5a6f};
+
+    private final int[] counters;
+    private final int mask;
+    private final int sampleSize;
+    private int additions = 0;
+
+    FrequencySketch(int maximumSize) {
+        int width = Integer.highestOneBit(Math.max(16, maximumSize) - 1) << 1;
+        this.counters = new int[width * ROWS];
+        this.mask = width - 1;
+        this.sampleSize = Math.max(10 * maximumSize, 16);
+    }
+
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int row = 0; row < ROWS; row++) {
+            int index = indexOf(hash, row);
+            if (counters[index] < MAX_FREQUENCY) {
+                counters[index]++;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = MAX_FREQUENCY;
+        for (int row = 0; row < ROWS; row++) {
+            frequency = Math.min(frequency, counters[indexOf(hash, row)]);
+        }
+        return frequency;
+    }
+
+    // Aging - halve every counter
+    private void reset() {
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] >>>= 1;
+        }
+        additions /= 2;
+    }
+
+    private int indexOf(int hash, int row) {
+        int rowHash = (hash ^ SEEDS[row]) * 0x9e3779b9;
+        rowHash ^= rowHash >>> 16;
+        return row * (mask + 1) + (rowHash & mask);
+    }
+
+    private static int spread(int hash) {
+        hash ^= hash >>> 17;
+        hash *= 0xed5ad4bb;
+        hash ^= hash >>> 11;
+        return hash;
+    }
+}
@@ -0,0 +1,38 @@
+package org.example.Performance.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+// Least recently used eviction built on an access ordered LinkedHashMap
+public class LruPolicy<K> implements EvictionPolicy<K> {
+    private final int maximumSize;
+    // Access order - get() moves the key to the end, the eldest key is the least recently used one
+    private final LinkedHashMap<K, Boolean> keys = new LinkedHashMap<>(16, 0.75f, true);
+
+    public LruPolicy(int maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    @Override
+    public void recordAccess(K key) {
+        keys.get(key);
+    }
+
+    @Override
+    public List<K> add(K key) {
+        keys.put(key, Boolean.TRUE);
+        if (keys.size() <= maximumSize) {
+            return List.of();
+        }
+        Iterator<K> eldest = keys.keySet().iterator();
+        K victim = eldest.next();
+        eldest.remove();
+        return List.of(victim);
+    }
+
+    @Override
+    public void remove(K key) {
+        keys.remove(key);
+    }
+}
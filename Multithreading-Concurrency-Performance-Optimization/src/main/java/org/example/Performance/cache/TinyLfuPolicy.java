@@ -0,0 +1,88 @@
+package org.example.Performance.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+// W-TinyLFU eviction (as used by Caffeine)
+// New keys enter a small LRU window (1% of the cache). A key pushed out of the window becomes a candidate
+// for the main area and is admitted only if the frequency sketch says it is more popular than the main area victim.
+// The main area is a segmented LRU: keys start in probation and are promoted to the protected segment (80%)
+// when they are accessed again, so frequently used words survive bursts of one-off searches
+public class TinyLfuPolicy<K> implements EvictionPolicy<K> {
+    private final int windowMaximumSize;
+    private final int mainMaximumSize;
+    private final int protectedMaximumSize;
+    private final FrequencySketch sketch;
+
+    // All segments are access ordered, the eldest key is the least recently used one
+    private final LinkedHashMap<K, Boolean> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Boolean> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Boolean> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+
+    public TinyLfuPolicy(int maximumSize) {
+        this.windowMaximumSize = Math.max(1, maximumSize / 100);
+        this.mainMaximumSize = maximumSize - windowMaximumSize;
+        this.protectedMaximumSize = mainMaximumSize * 8 / 10;
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    @Override
+    public void recordAccess(K key) {
+        sketch.increment(key);
+        if (window.containsKey(key)) {
+            window.get(key);
+        } else if (probation.remove(key) != null) {
+            // Second hit in the main area - promote to the protected segment
+            protectedSegment.put(key, Boolean.TRUE);
+            if (protectedSegment.size() > protectedMaximumSize) {
+                // Demote the least recently used protected key back to probation
+                probation.put(removeEldest(protectedSegment), Boolean.TRUE);
+            }
+        } else {
+            protectedSegment.get(key);
+        }
+    }
+
+    @Override
+    public List<K> add(K key) {
+        sketch.increment(key);
+        window.put(key, Boolean.TRUE);
+        if (window.size() <= windowMaximumSize) {
+            return List.of();
+        }
+
+        K candidate = removeEldest(window);
+        if (probation.size() + protectedSegment.size() < mainMaximumSize) {
+            probation.put(candidate, Boolean.TRUE);
+            return List.of();
+        }
+        if (mainMaximumSize == 0) {
+            return List.of(candidate);
+        }
+
+        LinkedHashMap<K, Boolean> victimSegment = probation.isEmpty() ? protectedSegment : probation;
+        K victim = victimSegment.keySet().iterator().next();
+        // Admission - the candidate replaces the victim only if it was requested more often
+        if (sketch.frequency(candidate) > sketch.frequency(victim)) {
+            victimSegment.remove(victim);
+            probation.put(candidate, Boolean.TRUE);
+            return List.of(victim);
+        }
+        return List.of(candidate);
+    }
+
+    @Override
+    public void remove(K key) {
+        if (window.remove(key) == null && probation.remove(key) == null) {
+            protectedSegment.remove(key);
+        }
+    }
+
+    private static <K> K removeEldest(LinkedHashMap<K, Boolean> segment) {
+        Iterator<K> eldest = segment.keySet().iterator();
+        K key = eldest.next();
+        eldest.remove();
+        return key;
+    }
+}
@@ -0,0 +1,322 @@
+package org.example.Performance.image;
+
+import org.example.Performance.image.filter.FilterChain;
+import org.example.Performance.image.filter.Filters;
+import org.example.Performance.metrics.LatencyHistogram;
+import org.example.cli.CommandLineOption;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+// Recolors every image of a directory tree with a three stage pipeline: decode -> recolor -> encode
+// Each stage has its own number of threads, stages are connected by bounded queues:
+// when recoloring falls behind, decoders block on the full queue instead of filling the heap with decoded images
+// (backpressure), so at most queueCapacity + threads images are in memory per stage
+// Decoding and encoding are dominated by file I/O and the JPEG codec, recoloring by the pixel loop,
+// with separate stages the I/O of one image overlaps with the recoloring of others
+// Per stage the report shows throughput, service time percentiles, utilization and time spent waiting:
+// a stage mostly waiting for input is starved by the previous one, a stage mostly blocked on output is the one limited by the next
+// The recolor stage runs a fused FilterChain, by default only the original recolor rule (see Filters for the syntax)
+// Results are written as JPEG with the same relative path, failed images are reported and skipped
+// Decoded and result images are borrowed from an ImageBufferPool and returned once the next stage is done with them,
+// so under steady load the large pixel arrays are reused instead of being allocated in the old generation per image
+// Usage: --input=<dir> --output=<dir> --decoders=2 --recolorers=<cores> --encoders=2 --queue-capacity=8 --filters=recolor
+//        --pool-megabytes=<half the heap, 0 disables pooling>
+public class BatchImageProcessor {
+    private static final Set<String> EXTENSIONS = Set.of("jpg", "jpeg", "png", "bmp", "gif");
+    // Tells the workers of a stage that no more jobs will come
+    private static final Job END = new Job(null, null, null);
+
+    private final Path inputDirectory;
+    private final Path outputDirectory;
+    private final int decoders;
+    private final int recolorers;
+    private final int encoders;
+    private final int queueCapacity;
+    private final FilterChain filters;
+    private final ImageBufferPool pool;
+
+    public BatchImageProcessor(Path inputDirectory, Path outputDirectory, int decoders, int recolorers, int encoders,
+                               int queueCapacity, FilterChain filters, ImageBufferPool pool) {
+        if (decoders < 1 || recolorers < 1 || encoders < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Thread counts and queue capacity must be positive");
+        }
+        this.inputDirectory = inputDirectory;
+        this.outputDirectory = outputDirectory;
+        this.decoders = decoders;
+        this.recolorers = recolorers;
+        this.encoders = encoders;
+        this.queueCapacity = queueCapacity;
+        this.filters = filters;
+        this.pool = pool;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path input = null;
+        Path output = null;
+        int decoders = 2;
+        int recolorers = Runtime.getRuntime().availableProcessors();
+        int encoders = 2;
+        int queueCapacity = 8;
+        String filters = "recolor";
+        long poolMegabytes = Runtime.getRuntime().maxMemory() / 2 / 1_000_000;
+
+        for (CommandLineOption option : CommandLineOption.parse(args)) {
+            String value = option.value();
+            switch (option.name()) {
+                case "input" -> input = Paths.get(value);
+                case "output" -> output = Paths.get(value);
+                case "decoders" -> decoders = Integer.parseInt(value);
+                case "recolorers" -> recolorers = Integer.parseInt(value);
+                case "encoders" -> encoders = Integer.parseInt(value);
+                case "queue-capacity" -> queueCapacity = Integer.parseInt(value);
+                case "filters" -> filters = value;
+                case "pool-megabytes" -> poolMegabytes = Long.parseLong(value);
+                default -> throw option.unknown();
+            }
+        }
+        if (input == null || output == null) {
+            throw new IllegalArgumentException("Both --input and --output directories are required");
+        }
+
+        System.out.println("Filters: " + filters + ", recolor kernel: " + RecolorKernels.describe(RecolorKernels.defaultKernel()));
+        FilterChain filterChain = Filters.parse(filters).compileLookupTables();
+        new BatchImageProcessor(input, output, decoders, recolorers, encoders, queueCapacity, filterChain,
+                new ImageBufferPool(poolMegabytes * 1_000_000)).run();
+    }
+
+    // Process all images and print the report, returns the number of images written
+    public long run() throws IOException, InterruptedException {
+        List<Path> sources;
+        try (Stream<Path> files = Files.walk(inputDirectory)) {
+            sources = files.filter(Files::isRegularFile).filter(BatchImageProcessor::isImage).sorted().toList();
+        }
+
+        Stage encode = new Stage("encode", encoders, new ArrayBlockingQueue<>(queueCapacity), null, this::encode);
+        Stage recolor = new Stage("recolor", recolorers, new ArrayBlockingQueue<>(queueCapacity), encode, this::recolor);
+        // The paths are tiny, so the first queue holds all of them
+        Stage decode = new Stage("decode", decoders, new LinkedBlockingQueue<>(), recolor, this::decode);
+        for (Path source : sources) {
+            decode.input.add(new Job(source, null, null));
+        }
+        for (int i = 0; i < decoders; i++) {
+            decode.input.add(END);
+        }
+
+        System.out.println("Processing " + sources.size() + " images from " + inputDirectory + " with " + decoders + " decoders, "
+                + recolorers + " recolorers, " + encoders
+                + " encoders, queue capacity " + queueCapacity);
+        long start = System.nanoTime();
+        List<Thread> threads = new ArrayList<>();
+        for (Stage stage : List.of(decode, recolor, encode)) {
+            stage.start(threads);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long duration = System.nanoTime() - start;
+
+        double seconds = duration / 1e9;
+        System.out.printf("Done in %.2f s: %d images written, %.1f images/s, %.1f megapixels/s%n", seconds,
+                encode.metrics.processed.sum(), encode.metrics.processed.sum() / seconds, recolor.metrics.pixels.sum() / 1e6 / seconds);
+        System.out.printf("%-8s %7s %6s %9s %10s %10s %12s %12s %12s%n", "stage", "threads", "failed", "images/s",
+                "p50 ms", "p99 ms", "utilization", "wait input", "wait output");
+        for (Stage stage : List.of(decode, recolor, encode)) {
+            stage.report(duration);
+        }
+        System.out.println("Buffer pool: " + pool);
+        return encode.metrics.processed.sum();
+    }
+
+    private Job decode(Job job) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(job.source().toFile())) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                throw new IOException("No ImageIO reader for " + job.source());
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                return new Job(job.source(), pool.read(reader), null);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private Job recolor(Job job) {
+        // The decoded image is not needed afterwards, only the result travels to the encoder
+        // Both go back to the pool when the filter fails, otherwise they would count against the cap forever
+        try (ImageBufferPool.PooledImage decoded = job.image()) {
+            BufferedImage image = decoded.image();
+            ImageBufferPool.PooledImage result = pool.borrowIntRgb(image.getWidth(), image.getHeight());
+            try {
+                filters.apply(image, result.image(), 0, 0, image.getWidth(), image.getHeight());
+            } catch (RuntimeException e) {
+                result.close();
+                throw e;
+            }
+            return new Job(job.source(), null, result);
+        }
+    }
+
+    private Job encode(Job job) throws IOException {
+        Path relative = inputDirectory.relativize(job.source());
+        String fileName = relative.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        Path target = outputDirectory.resolve(relative).resolveSibling((dot < 0 ? fileName : fileName.substring(0, dot)) + ".jpg");
+        Files.createDirectories(target.getParent());
+        try {
+            if (!ImageIO.write(job.result().image(), "jpg", target.toFile())) {
+                throw new IOException("No JPEG writer available");
+            }
+        } finally {
+            job.result().close();
+        }
+        return job;
+    }
+
+    private static boolean isImage(Path path) {
+        String name = path.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 && EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    // Image on its way through the pipeline, every stage fills in its part
+    private record Job(Path source, ImageBufferPool.PooledImage image, ImageBufferPool.PooledImage result) {
+        // Return the images of a failed job to the pool, closing twice is harmless
+        private void close() {
+            if (image != null) {
+                image.close();
+            }
+            if (result != null) {
+                result.close();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface StageFunction {
+        Job process(Job job) throws IOException;
+    }
+
+    // Counters of one stage, all times in nanoseconds
+    private static class StageMetrics {
+        private final LongAdder processed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder pixels = new LongAdder();
+        private final LongAdder busy = new LongAdder();
+        private final LongAdder waitInput = new LongAdder();
+        private final LongAdder waitOutput = new LongAdder();
+        // Service time of a single image in microseconds
+        private final LatencyHistogram serviceTime = new LatencyHistogram();
+    }
+
+    // Workers taking jobs from the input queue and putting results into the input queue of the next stage
+    private static class Stage {
+        private final String name;
+        private final int threads;
+        private final BlockingQueue<Job> input;
+        private final Stage next;
+        private final StageFunction function;
+        private final StageMetrics metrics = new StageMetrics();
+        private final AtomicInteger running;
+
+        private Stage(String name, int threads, BlockingQueue<Job> input, Stage next, StageFunction function) {
+            this.name = name;
+            this.threads = threads;
+            this.input = input;
+            this.next = next;
+            this.function = function;
+            this.running = new AtomicInteger(threads);
+        }
+
+        private void start(List<Thread> started) {
+            for (int i = 0; i < threads; i++) {
+                started.add(Thread.ofPlatform().name(name + "-" + i).start(this::work));
+            }
+        }
+
+        private void work() {
+            try {
+                while (true) {
+                    long waitStart = System.nanoTime();
+                    Job job = input.take();
+                    long start = System.nanoTime();
+                    metrics.waitInput.add(start - waitStart);
+                    if (job == END) {
+                        return;
+                    }
+
+                    Job result;
+                    try {
+                        result = function.process(job);
+                    } catch (IOException | RuntimeException e) {
+                        job.close();
+                        metrics.failed.increment();
+                        System.err.println(name + " failed for " + job.source() + ": " + e);
+                        continue;
+                    }
+                    long end = System.nanoTime();
+                    metrics.busy.add(end - start);
+                    metrics.serviceTime.record((end - start) / 1000);
+                    metrics.processed.increment();
+                    if (result.result() != null) {
+                        BufferedImage image = result.result().image();
+                        metrics.pixels.add((long) image.getWidth() * image.getHeight());
+                    }
+
+                    if (next != null) {
+                        // Blocks while the next stage is behind
+                        next.input.put(result);
+                        metrics.waitOutput.add(System.nanoTime() - end);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                // The last worker of the stage tells every worker of the next stage to finish
+                if (running.decrementAndGet() == 0 && next != null) {
+                    finishNext();
+                }
+            }
+        }
+
+        private void finishNext() {
+            try {
+                for (int i = 0; i < next.threads; i++) {
+                    // The queue may be full, the markers have to wait behind the last jobs
+                    next.input.put(END);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void report(long duration) {
+            double threadTime = (double) duration * threads;
+            System.out.printf("%-8s %7d %6d %9.1f %10.2f %10.2f %11.1f%% %11.1f%% %11.1f%%%n", name, threads,
+                    metrics.failed.sum(), metrics.processed.sum() / (duration / 1e9),
+                    metrics.serviceTime.getValueAtPercentile(50) / 1000.0, metrics.serviceTime.getValueAtPercentile(99) / 1000.0,
+                    100 * metrics.busy.sum() / threadTime, 100 * metrics.waitInput.sum() / threadTime,
+                    100 * metrics.waitOutput.sum() / threadTime);
+        }
+    }
+}
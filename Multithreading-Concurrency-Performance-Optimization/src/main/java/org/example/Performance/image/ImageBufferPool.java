@@ -0,0 +1,322 @@
+package org.example.Performance.image;
+
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+// Pool of the pixel arrays behind decoded and result images
+// A 12 megapixel image needs a 48 MB int[] for the result and a 36 MB byte[] for the decoded JPEG, arrays that large
+// are allocated straight in the old generation, so allocating them per image fills the old generation in a few
+// images and every job pays for a full GC sooner or later. Borrowed arrays are returned when the job is done and
+// handed to the next image of similar size instead
+// Arrays are bucketed by size: 4 buckets per power of two, so a reused array is at most 25% larger than needed,
+// the image is a view of exactly width x height pixels on the front of the array
+// Pooled bytes (borrowed and idle) never exceed the memory cap: idle arrays are dropped to make room,
+// when borrowed arrays alone fill the cap new images are allocated outside the pool and left to the GC
+// Images not returned are detected when their handle is garbage collected (Cleaner): the leak is counted and
+// reported, with the stack of the borrow when started with -Dimage.pool.trackLeaks=true
+// Images are handed out as PooledImage, close it when the pixels are not needed anymore
+public class ImageBufferPool {
+    public static final String TRACK_LEAKS_PROPERTY = "image.pool.trackLeaks";
+    private static final int MIN_BUCKET_ELEMENTS = 1024;
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final long maxBytes;
+    private final boolean trackLeaks = Boolean.getBoolean(TRACK_LEAKS_PROPERTY);
+
+    // Idle arrays by bucket size in elements, guarded by this
+    private final Map<Integer, ArrayDeque<int[]>> idleInts = new HashMap<>();
+    private final Map<Integer, ArrayDeque<byte[]>> idleBytes = new HashMap<>();
+    private long idleSize = 0;
+    private long borrowedSize = 0;
+
+    // Statistics, guarded by this
+    private long hits = 0;
+    private long misses = 0;
+    private long unpooled = 0;
+    private long evictions = 0;
+    private long leaks = 0;
+
+    public ImageBufferPool(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Memory cap must not be negative: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    // INT_RGB image for results
+    public PooledImage borrowIntRgb(int width, int height) {
+        int pixels = pixelCount(width, height);
+        Release release = takeInts(pixels);
+        DataBufferInt buffer = new DataBufferInt(release.ints, pixels);
+        WritableRaster raster = Raster.createPackedRaster(buffer, width, height, width,
+                new int[]{0xFF0000, 0xFF00, 0xFF}, null);
+        BufferedImage image = new BufferedImage(new DirectColorModel(24, 0xFF0000, 0xFF00, 0xFF), raster, false, null);
+        return new PooledImage(image, release);
+    }
+
+    // 3BYTE_BGR image, the type ImageIO decodes JPEG files into
+    public PooledImage borrow3ByteBgr(int width, int height) {
+        int length = Math.multiplyExact(pixelCount(width, height), 3);
+        Release release = takeBytes(length);
+        DataBufferByte buffer = new DataBufferByte(release.bytes, length);
+        WritableRaster raster = Raster.createInterleavedRaster(buffer, width, height, width * 3, 3, new int[]{2, 1, 0}, null);
+        ComponentColorModel colorModel = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB),
+                new int[]{8, 8, 8}, false, false, Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
+        BufferedImage image = new BufferedImage(colorModel, raster, false, null);
+        return new PooledImage(image, release);
+    }
+
+    // Decode the first image of the reader into a pooled image when the reader produces 3BYTE_BGR or INT_RGB
+    // (JPEG, most PNG and BMP files), other types are decoded into a new image that the pool does not keep
+    public PooledImage read(ImageReader reader) throws IOException {
+        int width = reader.getWidth(0);
+        int height = reader.getHeight(0);
+        ImageTypeSpecifier type = reader.getImageTypes(0).next();
+        PooledImage destination = switch (type.getBufferedImageType()) {
+            case BufferedImage.TYPE_3BYTE_BGR -> borrow3ByteBgr(width, height);
+            case BufferedImage.TYPE_INT_RGB -> borrowIntRgb(width, height);
+            default -> null;
+        };
+        if (destination == null) {
+            return unpooled(reader.read(0));
+        }
+        try {
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setDestination(destination.image());
+            reader.read(0, param);
+            return destination;
+        } catch (IOException | RuntimeException e) {
+            destination.close();
+            throw e;
+        }
+    }
+
+    // Wrap an image that does not belong to the pool, closing it does nothing
+    public static PooledImage unpooled(BufferedImage image) {
+        return new PooledImage(image, null);
+    }
+
+    private static int pixelCount(int width, int height) {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Invalid image size: " + width + "x" + height);
+        }
+        return Math.multiplyExact(width, height);
+    }
+
+    // Smallest bucket holding the elements: multiples of a quarter of the power of two below
+    static int bucketSize(int elements) {
+        if (elements <= MIN_BUCKET_ELEMENTS) {
+            return MIN_BUCKET_ELEMENTS;
+        }
+        int step = Integer.highestOneBit(elements - 1) / 4;
+        long size = ((long) elements + step - 1) / step * step;
+        return size > Integer.MAX_VALUE - 8 ? elements : (int) size;
+    }
+
+    // Idle array of the bucket or a new one, the release has no pool when the array is outside the cap
+    // New arrays are allocated outside the lock, zeroing tens of megabytes would block every other borrow and return
+    private Release takeInts(int elements) {
+        int size = bucketSize(elements);
+        int[] idle = pollIdle(idleInts, size, size * 4L);
+        if (idle != null) {
+            return new Release(this, idle, null, borrowedAt());
+        }
+        if (!reserve(size * 4L)) {
+            return new Release(null, new int[elements], null, null);
+        }
+        return new Release(this, new int[size], null, borrowedAt());
+    }
+
+    private Release takeBytes(int elements) {
+        int size = bucketSize(elements);
+        byte[] idle = pollIdle(idleBytes, size, size);
+        if (idle != null) {
+            return new Release(this, null, idle, borrowedAt());
+        }
+        if (!reserve(size)) {
+            return new Release(null, null, new byte[elements], null);
+        }
+        return new Release(this, null, new byte[size], borrowedAt());
+    }
+
+    private synchronized <T> T pollIdle(Map<Integer, ArrayDeque<T>> buckets, int size, long bytes) {
+        ArrayDeque<T> idle = buckets.get(size);
+        if (idle == null || idle.isEmpty()) {
+            misses++;
+            return null;
+        }
+        idleSize -= bytes;
+        borrowedSize += bytes;
+        hits++;
+        return idle.pop();
+    }
+
+    // Count a new array against the cap, dropping idle arrays to make room
+    // False when borrowed arrays alone leave no room, the array is then allocated outside the pool
+    private synchronized boolean reserve(long bytes) {
+        if (borrowedSize + bytes > maxBytes) {
+            unpooled++;
+            return false;
+        }
+        evict(idleInts, 4, bytes);
+        evict(idleBytes, 1, bytes);
+        borrowedSize += bytes;
+        return true;
+    }
+
+    // Capturing the stack costs microseconds per borrow, so it is only done on request
+    private Throwable borrowedAt() {
+        return trackLeaks ? new Throwable("Borrowed from the image buffer pool") : null;
+    }
+
+    // Drop idle arrays until the new array fits under the cap
+    private <T> void evict(Map<Integer, ArrayDeque<T>> buckets, int elementSize, long bytes) {
+        Iterator<Map.Entry<Integer, ArrayDeque<T>>> iterator = buckets.entrySet().iterator();
+        while (borrowedSize + idleSize + bytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<Integer, ArrayDeque<T>> bucket = iterator.next();
+            while (borrowedSize + idleSize + bytes > maxBytes && !bucket.getValue().isEmpty()) {
+                bucket.getValue().pop();
+                idleSize -= (long) bucket.getKey() * elementSize;
+                evictions++;
+            }
+            if (bucket.getValue().isEmpty()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private synchronized void giveBack(int[] ints, byte[] bytes) {
+        if (ints != null) {
+            borrowedSize -= ints.length * 4L;
+            idleSize += ints.length * 4L;
+            idleInts.computeIfAbsent(ints.length, ignored -> new ArrayDeque<>()).push(ints);
+        } else {
+            borrowedSize -= bytes.length;
+            idleSize += bytes.length;
+            idleBytes.computeIfAbsent(bytes.length, ignored -> new ArrayDeque<>()).push(bytes);
+        }
+    }
+
+    // The handle was collected without close(), the image may still be in use, so the array is not reused
+    private synchronized void leaked(int[] ints, byte[] bytes, Throwable borrowedAt) {
+        borrowedSize -= ints != null ? ints.length * 4L : bytes.length;
+        leaks++;
+        String size = ints != null ? ints.length * 4L + " bytes" : bytes.length + " bytes";
+        if (borrowedAt != null) {
+            System.err.println("Pooled image buffer of " + size + " was not closed, borrowed at:");
+            borrowedAt.printStackTrace();
+        } else {
+            System.err.println("Pooled image buffer of " + size + " was not closed, start with -D"
+                    + TRACK_LEAKS_PROPERTY + "=true to see where it was borrowed");
+        }
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public synchronized long getIdleBytes() {
+        return idleSize;
+    }
+
+    public synchronized long getBorrowedBytes() {
+        return borrowedSize;
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    // Images allocated outside the pool because borrowed arrays filled the cap
+    public synchronized long getUnpooledCount() {
+        return unpooled;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    public synchronized long getLeakCount() {
+        return leaks;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("hits %d, misses %d, over cap %d, evictions %d, leaks %d, borrowed %.1f MB, idle %.1f MB of %.1f MB",
+                hits, misses, unpooled, evictions, leaks, borrowedSize / 1e6, idleSize / 1e6, maxBytes / 1e6);
+    }
+
+    // Image borrowed from the pool, close returns its array
+    public static final class PooledImage implements AutoCloseable {
+        private final BufferedImage image;
+        private final Release release;
+        private final Cleaner.Cleanable cleanable;
+
+        private PooledImage(BufferedImage image, Release release) {
+            this.image = image;
+            this.release = release;
+            // Arrays outside the cap are left to the GC, there is nothing to return or to leak
+            this.cleanable = release == null || release.pool == null ? null : CLEANER.register(this, release);
+        }
+
+        public BufferedImage image() {
+            return image;
+        }
+
+        // Return the array to the pool, the image must not be used afterwards
+        @Override
+        public void close() {
+            if (cleanable != null) {
+                release.closed = true;
+                cleanable.clean();
+            }
+        }
+    }
+
+    // Runs once: on close() returns the array, when the handle was collected before reports the leak
+    // Must not reference the PooledImage, or the handle would never become unreachable
+    private static final class Release implements Runnable {
+        private final ImageBufferPool pool;
+        private final int[] ints;
+        private final byte[] bytes;
+        private final Throwable borrowedAt;
+        private volatile boolean closed = false;
+
+        private Release(ImageBufferPool pool, int[] ints, byte[] bytes, Throwable borrowedAt) {
+            this.pool = pool;
+            this.ints = ints;
+            this.bytes = bytes;
+            this.borrowedAt = borrowedAt;
+        }
+
+        @Override
+        public void run() {
+            if (closed) {
+                pool.giveBack(ints, bytes);
+            } else {
+                pool.leaked(ints, bytes, borrowedAt);
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.example.Performance.image;
+
+import org.example.Performance.LatencyMultithreading;
+import org.example.cli.CommandLineOption;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+// Checks a recolor kernel pixel for pixel against the original per-pixel code (LatencyMultithreading.recolorPixes)
+// 1. every one of the 2^24 RGB colors, with varying alpha and at unaligned offsets, so the vector loop and its scalar tail are both hit
+// 2. a real image through BulkRecolor
+// Run with --add-modules jdk.incubator.vector to validate the vector kernel
+// Usage: --kernel=vector|scalar|auto --image=src/main/resources/many-flowers.jpg
+public class KernelValidator {
+
+    public static void main(String[] args) throws IOException {
+        String kernelName = "vector";
+        String imageFile = "src/main/resources/many-flowers.jpg";
+
+        for (CommandLineOption option : CommandLineOption.parse(args)) {
+            String value = option.value();
+            switch (option.name()) {
+                case "kernel" -> kernelName = value;
+                case "image" -> imageFile = value;
+                default -> throw option.unknown();
+            }
+        }
+
+        RecolorKernel kernel = RecolorKernels.forName(kernelName);
+        System.out.println("Validating " + RecolorKernels.describe(kernel) + " kernel");
+
+        // All colors as a 4096 x 4096 image recolored by the original code
+        int colors = 1 << 24;
+        BufferedImage allColors = new BufferedImage(4096, 4096, BufferedImage.TYPE_INT_ARGB);
+        BufferedImage reference = new BufferedImage(4096, 4096, BufferedImage.TYPE_INT_ARGB);
+        int[] source = new int[colors + 3];
+        for (int rgb = 0; rgb < colors; rgb++) {
+            // The alpha byte is filled with noise which the kernel has to ignore
+            source[rgb + 3] = (rgb * 0x9E3779B1) & 0xFF000000 | rgb;
+        }
+        PixelAccess.writeRows(allColors, 0, 0, 4096, 4096, Arrays.copyOfRange(source, 3, colors + 3));
+        LatencyMultithreading.recolorImage(allColors, reference, 0, 0, 4096, 4096);
+        int[] expected = new int[colors];
+        PixelAccess.readRows(reference, 0, 0, 4096, 4096, expected);
+
+        int[] target = new int[colors + 7];
+        kernel.recolor(source, 3, target, 7, colors);
+        for (int rgb = 0; rgb < colors; rgb++) {
+            if (target[rgb + 7] != expected[rgb]) {
+                throw new IllegalStateException(String.format("Color %06x: expected %08x but got %08x", rgb, expected[rgb], target[rgb + 7]));
+            }
+        }
+        // In place, as BulkRecolor uses it for non-int images
+        kernel.recolor(source, 3, source, 3, colors);
+        for (int rgb = 0; rgb < colors; rgb++) {
+            if (source[rgb + 3] != expected[rgb]) {
+                throw new IllegalStateException(String.format("Color %06x differs when recolored in place", rgb));
+            }
+        }
+        System.out.println("All " + colors + " colors match");
+
+        BufferedImage image = ImageIO.read(new File(imageFile));
+        int width = image.getWidth();
+        int height = image.getHeight();
+        BufferedImage expectedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        BufferedImage actualImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        LatencyMultithreading.recolorImage(image, expectedImage, 0, 0, width, height);
+        BulkRecolor.recolor(image, actualImage, 0, 0, width, height, kernel);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (expectedImage.getRGB(x, y) != actualImage.getRGB(x, y)) {
+                    throw new IllegalStateException("Pixel " + x + "," + y + " of " + imageFile + " differs");
+                }
+            }
+        }
+        System.out.println("All " + (long) width * height + " pixels of " + imageFile + " match");
+    }
+}
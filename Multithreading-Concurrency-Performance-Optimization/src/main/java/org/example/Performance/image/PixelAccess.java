@@ -0,0 +1,132 @@
+package org.example.Performance.image;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+// Bulk access to the pixels of a BufferedImage as packed 0xAARRGGBB ints
+// BufferedImage.getRGB(x, y) / setRGB go through the ColorModel for every pixel and setDataElements allocates,
+// here whole rows are copied straight from / to the backing array of the common image types:
+// TYPE_INT_RGB and TYPE_INT_ARGB (DataBufferInt) and TYPE_3BYTE_BGR (DataBufferByte, what ImageIO returns for JPEG)
+// Other types fall back to the bulk getRGB / setRGB, which still reuse one buffer for the whole block
+// Taking the backing array disables hardware acceleration of the image, which does not matter for offscreen processing
+public final class PixelAccess {
+
+    private PixelAccess() {
+    }
+
+    // Read rows [y, y + rows) of the columns [x, x + width) into buffer, row after row
+    public static void readRows(BufferedImage image, int x, int y, int width, int rows, int[] buffer) {
+        WritableRaster raster = image.getRaster();
+        int type = image.getType();
+        if (type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB) {
+            int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+            int stride = ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+            int start = intIndex(raster, x, y, stride);
+            // INT_RGB has no alpha bits, getRGB reports such pixels as opaque
+            int alpha = type == BufferedImage.TYPE_INT_RGB ? 0xFF000000 : 0;
+            for (int row = 0; row < rows; row++) {
+                int from = start + row * stride;
+                int to = row * width;
+                if (alpha == 0) {
+                    System.arraycopy(data, from, buffer, to, width);
+                } else {
+                    for (int i = 0; i < width; i++) {
+                        buffer[to + i] = data[from + i] | alpha;
+                    }
+                }
+            }
+        } else if (type == BufferedImage.TYPE_3BYTE_BGR) {
+            byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+            ComponentSampleModel sampleModel = (ComponentSampleModel) raster.getSampleModel();
+            int stride = sampleModel.getScanlineStride();
+            int pixelStride = sampleModel.getPixelStride();
+            int[] bandOffsets = sampleModel.getBandOffsets();
+            int start = byteIndex(raster, x, y, stride, pixelStride);
+            int redOffset = bandOffsets[0];
+            int greenOffset = bandOffsets[1];
+            int blueOffset = bandOffsets[2];
+            for (int row = 0; row < rows; row++) {
+                int from = start + row * stride;
+                int to = row * width;
+                for (int i = 0; i < width; i++, from += pixelStride) {
+                    buffer[to + i] = 0xFF000000
+                            | (data[from + redOffset] & 0xFF) << 16
+                            | (data[from + greenOffset] & 0xFF) << 8
+                            | (data[from + blueOffset] & 0xFF);
+                }
+            }
+        } else {
+            image.getRGB(x, y, width, rows, buffer, 0, width);
+        }
+    }
+
+    // Write rows [y, y + rows) of the columns [x, x + width) from buffer, row after row
+    public static void writeRows(BufferedImage image, int x, int y, int width, int rows, int[] buffer) {
+        WritableRaster raster = image.getRaster();
+        int type = image.getType();
+        if (type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB) {
+            // Alpha bits written into an INT_RGB image are ignored by its color model
+            int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+            int stride = ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+            int start = intIndex(raster, x, y, stride);
+            for (int row = 0; row < rows; row++) {
+                System.arraycopy(buffer, row * width, data, start + row * stride, width);
+            }
+        } else if (type == BufferedImage.TYPE_3BYTE_BGR) {
+            byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+            ComponentSampleModel sampleModel = (ComponentSampleModel) raster.getSampleModel();
+            int stride = sampleModel.getScanlineStride();
+            int pixelStride = sampleModel.getPixelStride();
+            int[] bandOffsets = sampleModel.getBandOffsets();
+            int start = byteIndex(raster, x, y, stride, pixelStride);
+            for (int row = 0; row < rows; row++) {
+                int to = start + row * stride;
+                int from = row * width;
+                for (int i = 0; i < width; i++, to += pixelStride) {
+                    int rgb = buffer[from + i];
+                    data[to + bandOffsets[0]] = (byte) (rgb >> 16);
+                    data[to + bandOffsets[1]] = (byte) (rgb >> 8);
+                    data[to + bandOffsets[2]] = (byte) rgb;
+                }
+            }
+        } else {
+            image.setRGB(x, y, width, rows, buffer, 0, width);
+        }
+    }
+
+    // Backing array of an INT_RGB / INT_ARGB image with the index of pixel (0, 0) and the scanline stride,
+    // so kernels can work on the image in place without copying rows, null for other image types
+    public static IntPixels intPixels(BufferedImage image) {
+        int type = image.getType();
+        if (type != BufferedImage.TYPE_INT_RGB && type != BufferedImage.TYPE_INT_ARGB) {
+            return null;
+        }
+        WritableRaster raster = image.getRaster();
+        int stride = ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+        return new IntPixels(((DataBufferInt) raster.getDataBuffer()).getData(), intIndex(raster, 0, 0, stride), stride);
+    }
+
+    // Sub-images share the parent buffer, the translation and the buffer offset locate their first pixel
+    private static int intIndex(WritableRaster raster, int x, int y, int stride) {
+        return raster.getDataBuffer().getOffset()
+                + (y - raster.getSampleModelTranslateY()) * stride
+                + (x - raster.getSampleModelTranslateX());
+    }
+
+    private static int byteIndex(WritableRaster raster, int x, int y, int stride, int pixelStride) {
+        return raster.getDataBuffer().getOffset()
+                + (y - raster.getSampleModelTranslateY()) * stride
+                + (x - raster.getSampleModelTranslateX()) * pixelStride;
+    }
+
+    // Pixel (x, y) is data[offset + y * stride + x]
+    public record IntPixels(int[] data, int offset, int stride) {
+        public int indexOf(int x, int y) {
+            return offset + y * stride + x;
+        }
+    }
+}
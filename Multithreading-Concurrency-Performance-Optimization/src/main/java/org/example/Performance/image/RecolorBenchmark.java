@@ -0,0 +1,113 @@
+package org.example.Performance.image;
+
+import org.example.Performance.LatencyMultithreading;
+import org.example.cli.CommandLineOption;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+// Compares the per-pixel recolor (getRGB / setRGB for every pixel) with the bulk row path on a real image
+// Both run single threaded on the same decoded image, after warm-up iterations so the JIT has compiled both loops
+// Reports time and bytes allocated per pixel and checks that both produce the same pixels
+// The bulk path runs with the scalar and the Vector API kernel (start with --add-modules jdk.incubator.vector),
+// both on the decoded 3BYTE_BGR image and on an INT_RGB copy where the kernel runs on the arrays directly
+// The bulk path is also run with fork/join tiles on a pool of the given parallelism to show the speedup
+// (allocation is only measured on the calling thread, so it is not meaningful for the parallel run)
+// Usage: --image=src/main/resources/many-flowers.jpg --iterations=10 --parallelism=<cores> --tile-width=<n> --tile-height=32
+public class RecolorBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        String imageFile = "src/main/resources/many-flowers.jpg";
+        int iterations = 10;
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        int tileWidth = TileScheduler.DEFAULT_TILE_WIDTH;
+        int tileHeight = TileScheduler.DEFAULT_TILE_HEIGHT;
+
+        for (CommandLineOption option : CommandLineOption.parse(args)) {
+            String value = option.value();
+            switch (option.name()) {
+                case "image" -> imageFile = value;
+                case "iterations" -> iterations = Integer.parseInt(value);
+                case "parallelism" -> parallelism = Integer.parseInt(value);
+                case "tile-width" -> tileWidth = Integer.parseInt(value);
+                case "tile-height" -> tileHeight = Integer.parseInt(value);
+                default -> throw option.unknown();
+            }
+        }
+
+        BufferedImage image = ImageIO.read(new File(imageFile));
+        int width = image.getWidth();
+        int height = image.getHeight();
+        long pixels = (long) width * height;
+        System.out.println("Image " + imageFile + ": " + width + "x" + height + ", type " + image.getType());
+
+        BufferedImage perPixelResult = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        BufferedImage bulkResult = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        BufferedImage forkJoinResult = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        TileScheduler scheduler = new TileScheduler(TileScheduler.createPool(parallelism), tileWidth, tileHeight);
+
+        Runnable perPixel = () -> LatencyMultithreading.recolorImage(image, perPixelResult, 0, 0, width, height);
+        Runnable bulk = () -> BulkRecolor.recolor(image, bulkResult, 0, 0, width, height, ScalarRecolorKernel.INSTANCE);
+        BufferedImage vectorResult = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        RecolorKernel vectorKernel = RecolorKernels.forName("auto");
+        Runnable vector = () -> BulkRecolor.recolor(image, vectorResult, 0, 0, width, height, vectorKernel);
+        BufferedImage vectorIntResult = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        BufferedImage scalarIntResult = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        // INT_RGB copy of the source, so the kernels run on the arrays without the byte to int conversion
+        BufferedImage intImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        BulkRecolor.recolor(image, intImage, 0, 0, width, height, (source, sourceOffset, target, targetOffset, length) ->
+                System.arraycopy(source, sourceOffset, target, targetOffset, length));
+        Runnable scalarInt = () -> BulkRecolor.recolor(intImage, scalarIntResult, 0, 0, width, height, ScalarRecolorKernel.INSTANCE);
+        Runnable vectorInt = () -> BulkRecolor.recolor(intImage, vectorIntResult, 0, 0, width, height, vectorKernel);
+        Runnable forkJoin = () -> LatencyMultithreading.recolorForkJoin(image, forkJoinResult, scheduler);
+
+        // Warm-up
+        for (int i = 0; i < 3; i++) {
+            perPixel.run();
+            bulk.run();
+            vector.run();
+            scalarInt.run();
+            vectorInt.run();
+            forkJoin.run();
+        }
+
+        report("Per pixel getRGB/setRGB", perPixel, iterations, pixels);
+        report("Bulk rows", bulk, iterations, pixels);
+        report("Bulk rows " + RecolorKernels.describe(vectorKernel), vector, iterations, pixels);
+        report("INT_RGB rows scalar", scalarInt, iterations, pixels);
+        report("INT_RGB rows " + RecolorKernels.describe(vectorKernel), vectorInt, iterations, pixels);
+        report("Fork/join tiles (" + parallelism + ")", forkJoin, iterations, pixels);
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int expected = perPixelResult.getRGB(x, y);
+                if (expected != bulkResult.getRGB(x, y) || expected != forkJoinResult.getRGB(x, y)
+                        || expected != vectorResult.getRGB(x, y) || expected != scalarIntResult.getRGB(x, y)
+                        || expected != vectorIntResult.getRGB(x, y)) {
+                    throw new IllegalStateException("Results differ at " + x + "," + y);
+                }
+            }
+        }
+        System.out.println("Results are identical");
+    }
+
+    private static void report(String name, Runnable recolor, int iterations, long pixels) {
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            recolor.run();
+        }
+        long duration = System.nanoTime() - start;
+        long allocated = allocatedBytes() - allocatedBefore;
+
+        System.out.printf("%-30s %8.2f ms/image %8.2f ns/pixel %8.2f bytes allocated/pixel%n", name,
+                duration / 1e6 / iterations, (double) duration / iterations / pixels, (double) allocated / iterations / pixels);
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+}
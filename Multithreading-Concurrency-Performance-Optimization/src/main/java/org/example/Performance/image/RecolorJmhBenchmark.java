@@ -0,0 +1,161 @@
+package org.example.Performance.image;
+
+import org.example.Performance.LatencyMultithreading;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// JMH suite for the recolor variants of LatencyMultithreading and the kernels behind them
+// Unlike the hand written benchmarks (RecolorBenchmark, TraversalBenchmark) every variant runs in forked JVMs
+// with warmup iterations, so JIT compilation, GC and the thread start-up of the first calls are not part of the result
+// Images are generated with a fixed seed, a quarter of the pixels are shades of gray so both branches of the rule run
+// The thread counts only apply to the multithreaded variants, JMH runs the others once per image
+// Results are images recolored per second, the GC profiler adds the allocation rate (gc.alloc.rate.norm = bytes per image)
+// Build:  mvn -Pbenchmarks package
+// Run:    java -jar target/benchmarks.jar [JMH options, e.g. -p size=1920x1080 -p threads=1,2,4 -f 1]
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class RecolorJmhBenchmark {
+
+    // Source and result image of one size and type, shared by all benchmark threads
+    @State(Scope.Benchmark)
+    public static class Images {
+        // width x height
+        @Param({"640x480", "1920x1080", "4000x3000"})
+        public String size;
+
+        // 3byte_bgr is what ImageIO decodes JPEG files into, int_rgb lets the kernels work on the raster arrays directly
+        @Param({"3byte_bgr", "int_rgb"})
+        public String type;
+
+        BufferedImage image;
+        BufferedImage result;
+
+        @Setup(Level.Trial)
+        public void createImages() {
+            int separator = size.indexOf('x');
+            int width = Integer.parseInt(size.substring(0, separator));
+            int height = Integer.parseInt(size.substring(separator + 1));
+            image = new BufferedImage(width, height, switch (type) {
+                case "3byte_bgr" -> BufferedImage.TYPE_3BYTE_BGR;
+                case "int_rgb" -> BufferedImage.TYPE_INT_RGB;
+                default -> throw new IllegalArgumentException("Unknown image type: " + type);
+            });
+            result = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+
+            Random random = new Random(42);
+            int[] row = new int[width];
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    int gray = random.nextInt(256);
+                    row[x] = random.nextInt(4) == 0 ? gray << 16 | gray << 8 | gray : random.nextInt(0x1000000);
+                }
+                image.setRGB(0, y, width, 1, row, 0, width);
+            }
+        }
+    }
+
+    // Number of threads of the multithreaded variants, one pool per trial for the fork/join variant
+    @State(Scope.Benchmark)
+    public static class Threads {
+        @Param({"1", "2", "4", "8"})
+        public int threads;
+
+        TileScheduler scheduler;
+
+        @Setup(Level.Trial)
+        public void createPool() {
+            scheduler = new TileScheduler(TileScheduler.createPool(threads), TileScheduler.DEFAULT_TILE_WIDTH,
+                    TileScheduler.DEFAULT_TILE_HEIGHT);
+        }
+
+        @TearDown(Level.Trial)
+        public void shutdownPool() {
+            scheduler.getPool().shutdown();
+        }
+    }
+
+    // Kernel of the bulk path, vector fails the trial when the JVM runs without the incubator module
+    @State(Scope.Benchmark)
+    public static class Kernel {
+        @Param({"scalar", "vector"})
+        public String kernel;
+
+        RecolorKernel recolorKernel;
+
+        @Setup(Level.Trial)
+        public void selectKernel() {
+            recolorKernel = RecolorKernels.forName(kernel);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        OptionsBuilder options = new OptionsBuilder();
+        options.parent(commandLine);
+        if (commandLine.getIncludes().isEmpty()) {
+            options.include(RecolorJmhBenchmark.class.getSimpleName());
+        }
+        options.addProfiler(GCProfiler.class);
+        new Runner(options.build()).run();
+    }
+
+    // Reference: getRGB / setRGB for every pixel
+    @Benchmark
+    public void pixelByPixel(Images images, Blackhole blackhole) {
+        LatencyMultithreading.recolorImage(images.image, images.result, 0, 0, images.image.getWidth(), images.image.getHeight());
+        blackhole.consume(images.result);
+    }
+
+    @Benchmark
+    public void singleThreaded(Images images, Blackhole blackhole) {
+        LatencyMultithreading.recolorSingleThreaded(images.image, images.result);
+        blackhole.consume(images.result);
+    }
+
+    // New threads for every image, as in LatencyMultithreading
+    @Benchmark
+    public void multiThreaded(Images images, Threads threads, Blackhole blackhole) {
+        LatencyMultithreading.recolorMultiThreaded(images.image, images.result, threads.threads);
+        blackhole.consume(images.result);
+    }
+
+    // Tiles on a pool that outlives the image
+    @Benchmark
+    public void forkJoin(Images images, Threads threads, Blackhole blackhole) {
+        LatencyMultithreading.recolorForkJoin(images.image, images.result, threads.scheduler);
+        blackhole.consume(images.result);
+    }
+
+    // Single threaded bulk path with an explicit kernel
+    @Benchmark
+    public void bulkKernel(Images images, Kernel kernel, Blackhole blackhole) {
+        BulkRecolor.recolor(images.image, images.result, 0, 0, images.image.getWidth(), images.image.getHeight(),
+                kernel.recolorKernel);
+        blackhole.consume(images.result);
+    }
+}
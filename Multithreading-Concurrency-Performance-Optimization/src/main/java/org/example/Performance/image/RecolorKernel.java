@@ -0,0 +1,11 @@
+package org.example.Performance.image;
+
+// Recolors a run of packed 0xAARRGGBB pixels with the rule of LatencyMultithreading.recolorPixes:
+// shades of gray (all channels within 30 of each other) get red +10, green -80, blue -20, clamped to 0..255,
+// other pixels are kept, the result is always opaque
+// Kernels work on whole rows so the loop has no per-pixel calls into BufferedImage
+public interface RecolorKernel {
+
+    // Recolor length pixels from source into target, source and target may be the same array and range
+    void recolor(int[] source, int sourceOffset, int[] target, int targetOffset, int length);
+}
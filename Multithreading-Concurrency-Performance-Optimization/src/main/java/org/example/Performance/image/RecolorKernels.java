@@ -0,0 +1,66 @@
+package org.example.Performance.image;
+
+// Selects the recolor kernel at runtime
+// auto   - the Vector API kernel when the jdk.incubator.vector module is resolved (--add-modules jdk.incubator.vector)
+//          and the CPU has at least 4 int lanes, the scalar kernel otherwise
+// scalar - always the plain loop
+// vector - the Vector API kernel, fails when it is not available
+// The default is read from -Drecolor.kernel=auto|scalar|vector
+public final class RecolorKernels {
+    public static final String KERNEL_PROPERTY = "recolor.kernel";
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String VECTOR_KERNEL_CLASS = "org.example.Performance.image.VectorRecolorKernel";
+
+    private static final RecolorKernel VECTOR = loadVectorKernel();
+    private static final RecolorKernel DEFAULT = forName(System.getProperty(KERNEL_PROPERTY, "auto"));
+
+    private RecolorKernels() {
+    }
+
+    // Kernel selected with -Drecolor.kernel
+    public static RecolorKernel defaultKernel() {
+        return DEFAULT;
+    }
+
+    public static RecolorKernel forName(String name) {
+        return switch (name.toLowerCase()) {
+            case "auto" -> VECTOR != null ? VECTOR : ScalarRecolorKernel.INSTANCE;
+            case "scalar" -> ScalarRecolorKernel.INSTANCE;
+            case "vector" -> {
+                if (VECTOR == null) {
+                    throw new IllegalArgumentException("Vector kernel is not available, start the JVM with --add-modules " + VECTOR_MODULE);
+                }
+                yield VECTOR;
+            }
+            default -> throw new IllegalArgumentException("Unknown recolor kernel: " + name);
+        };
+    }
+
+    public static boolean isVectorAvailable() {
+        return VECTOR != null;
+    }
+
+    // Name of the kernel for reports, e.g. "vector (8 lanes)"
+    public static String describe(RecolorKernel kernel) {
+        if (kernel == VECTOR) {
+            return "vector (" + VectorRecolorKernel.lanes() + " lanes)";
+        }
+        return "scalar";
+    }
+
+    // The kernel class is only touched when the module is present, otherwise loading it would throw NoClassDefFoundError
+    private static RecolorKernel loadVectorKernel() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            return null;
+        }
+        try {
+            Class<?> kernelClass = Class.forName(VECTOR_KERNEL_CLASS);
+            if (!(boolean) kernelClass.getDeclaredMethod("isSupported").invoke(null)) {
+                return null;
+            }
+            return (RecolorKernel) kernelClass.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
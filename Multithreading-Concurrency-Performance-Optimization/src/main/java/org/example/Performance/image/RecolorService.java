@@ -0,0 +1,209 @@
+package org.example.Performance.image;
+
+import org.example.Performance.image.filter.FilterChain;
+import org.example.Performance.image.filter.Filters;
+import org.example.Performance.metrics.LatencyHistogram;
+import org.example.Performance.metrics.ServerMetrics;
+import org.example.Performance.server.AdmissionController;
+import org.example.Performance.server.EndpointHandler;
+import org.example.Performance.server.InstrumentedHandler;
+import org.example.Performance.server.MetricsHandler;
+import org.example.Performance.server.QueryParameters;
+import org.example.Performance.server.ResponseBuffer;
+import org.example.Performance.server.ServerConfig;
+import org.example.Performance.server.ServerEngine;
+import org.example.Performance.server.ServerEngineType;
+import org.example.cli.CommandLineOption;
+
+import javax.imageio.IIOException;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Recolor as an HTTP service: POST an image to /recolor and get the recolored JPEG back
+// Every request is recolored by the tiles of one shared, bounded fork/join pool (TileScheduler) instead of
+// a pool per request, so the number of busy cores stays fixed no matter how many requests arrive
+// Before decoding, the image size is read from its header and the request is admitted for its megapixels
+// (AdmissionController): the megapixels being processed are capped, a huge image holds at most half of the budget
+// so small images still get in next to it, and requests waiting too long are answered with 503 + Retry-After
+// Images claiming more than --max-image-megapixels in their header are rejected with 400 before admission,
+// the decoded and result buffers of such an image would not fit in memory (or even in an int array)
+// Small images (below --inline-megapixels) are recolored on the request thread and do not queue behind
+// the tiles of a huge image in the shared pool
+// Decoded and result images are borrowed from an ImageBufferPool of --pool-megabytes and returned after encoding
+// GET /metrics exports request latency histograms per endpoint plus admission wait time, decode / recolor / encode
+// durations, the megapixels in use and the rejected requests with the "recolor_" prefix
+// Usage: --max-megapixels=64 --max-image-megapixels=<max-megapixels> --max-waiting=32 --max-wait-ms=2000 --inline-megapixels=1 --filters=recolor
+//        --pool-megabytes=<half the heap, 0 disables pooling>
+//        plus the server options of ServerConfig (--port, --engine, --threads, ...), the engine defaults to virtual_threads
+//        The nio engine is rejected: it runs handlers on its event loop, where waiting for admission and
+//        recoloring would stall every other connection of the loop
+// Try:   curl --data-binary @src/main/resources/many-flowers.jpg -o out.jpg "http://localhost:8000/recolor?filters=recolor,contrast:1.2"
+public class RecolorService {
+    public static final String IMAGE_CONTENT_TYPE = "image/jpeg";
+
+    public static void main(String[] args) throws IOException {
+        int maxMegapixels = 64;
+        int maxImageMegapixels = -1;
+        int maxWaiting = 32;
+        long maxWaitMillis = 2000;
+        int inlineMegapixels = 1;
+        String filters = "recolor";
+        long poolMegabytes = Runtime.getRuntime().maxMemory() / 2 / 1_000_000;
+
+        // Service options are taken here, the rest goes to the server configuration
+        List<String> serverArgs = new ArrayList<>(List.of("--engine=virtual_threads"));
+        for (CommandLineOption option : CommandLineOption.parse(args)) {
+            String value = option.value();
+            switch (option.name()) {
+                case "max-megapixels" -> maxMegapixels = Integer.parseInt(value);
+                case "max-image-megapixels" -> maxImageMegapixels = Integer.parseInt(value);
+                case "max-waiting" -> maxWaiting = Integer.parseInt(value);
+                case "max-wait-ms" -> maxWaitMillis = Long.parseLong(value);
+                case "inline-megapixels" -> inlineMegapixels = Integer.parseInt(value);
+                case "filters" -> filters = value;
+                case "pool-megabytes" -> poolMegabytes = Long.parseLong(value);
+                default -> serverArgs.add(option.argument());
+            }
+        }
+        ServerConfig config = ServerConfig.fromArgs(serverArgs.toArray(String[]::new), null);
+        if (config.getEngineType() == ServerEngineType.NIO) {
+            throw new IllegalArgumentException("Recolor blocks the request thread, use the fixed_pool or virtual_threads engine");
+        }
+        if (maxImageMegapixels < 0) {
+            maxImageMegapixels = maxMegapixels;
+        }
+        if (maxImageMegapixels < 1) {
+            throw new IllegalArgumentException("Max image megapixels must be positive: " + maxImageMegapixels);
+        }
+
+        AdmissionController admission = new AdmissionController(maxMegapixels, maxWaiting, maxWaitMillis, TimeUnit.MILLISECONDS);
+        RecolorHandler handler = new RecolorHandler(Filters.parse(filters).compileLookupTables(), TileScheduler.shared(),
+                admission, inlineMegapixels, maxImageMegapixels, new ImageBufferPool(poolMegabytes * 1_000_000));
+        ServerEngine server = ServerEngine.create(config);
+        ServerMetrics metrics = new ServerMetrics("recolor_");
+        server.addEndpoint("/recolor", new InstrumentedHandler(handler, metrics.forEndpoint("/recolor")));
+        handler.registerMetrics(metrics);
+        server.registerMetrics(metrics);
+        server.addEndpoint("/metrics", new MetricsHandler(metrics));
+        server.start();
+        System.out.println("Recolor service started on port " + config.getPort() + " with " + config.getEngineType()
+                + " engine, " + maxMegapixels + " megapixels in flight, " + TileScheduler.shared().getPool().getParallelism()
+                + " image workers, filters " + filters);
+    }
+
+    // Handler recoloring the image in the request body
+    // Request format: POST /recolor[?filters=<specification>] with the encoded image as body, see Filters for the syntax
+    public static class RecolorHandler extends EndpointHandler {
+        private final FilterChain defaultFilters;
+        private final TileScheduler scheduler;
+        private final AdmissionController admission;
+        private final long inlinePixels;
+        private final long maxImagePixels;
+        private final ImageBufferPool pool;
+        // Durations of the stages in nanoseconds
+        private final LatencyHistogram decodeTime = new LatencyHistogram();
+        private final LatencyHistogram recolorTime = new LatencyHistogram();
+        private final LatencyHistogram encodeTime = new LatencyHistogram();
+
+        public RecolorHandler(FilterChain defaultFilters, TileScheduler scheduler, AdmissionController admission,
+                              int inlineMegapixels, int maxImageMegapixels, ImageBufferPool pool) {
+            this.defaultFilters = defaultFilters;
+            this.scheduler = scheduler;
+            this.admission = admission;
+            this.inlinePixels = inlineMegapixels * 1_000_000L;
+            this.maxImagePixels = maxImageMegapixels * 1_000_000L;
+            this.pool = pool;
+        }
+
+        public void registerMetrics(ServerMetrics metrics) {
+            metrics.registerHistogram("admission_wait_seconds", "Time requests waited for admission, rejected ones included",
+                    admission.getWaitTime());
+            metrics.registerHistogram("decode_duration_seconds", "Time spent decoding request images", decodeTime);
+            metrics.registerHistogram("recolor_duration_seconds", "Time spent running the filters", recolorTime);
+            metrics.registerHistogram("encode_duration_seconds", "Time spent encoding response images", encodeTime);
+            metrics.registerGauge("admission_megapixels_capacity", "Megapixels that may be processed at once", admission::getCapacity);
+            metrics.registerGauge("admission_megapixels_in_use", "Megapixels currently being processed", admission::getUnitsInUse);
+            metrics.registerGauge("admission_waiting", "Requests waiting for admission", admission::getWaiting);
+            metrics.registerCounter("admission_admitted_total", "Requests admitted for processing", admission::getAdmittedCount);
+            metrics.registerCounter("admission_rejected_total", "Requests rejected with 503 by admission control", admission::getRejectedCount);
+            metrics.registerGauge("image_pool_queued_tasks", "Tiles waiting in the shared image pool",
+                    () -> scheduler.getPool().getQueuedTaskCount() + scheduler.getPool().getQueuedSubmissionCount());
+            metrics.registerGauge("buffer_pool_borrowed_bytes", "Bytes of pooled image buffers in use", pool::getBorrowedBytes);
+            metrics.registerGauge("buffer_pool_idle_bytes", "Bytes of pooled image buffers waiting for reuse", pool::getIdleBytes);
+            metrics.registerCounter("buffer_pool_hits_total", "Images served from a pooled buffer", pool::getHitCount);
+            metrics.registerCounter("buffer_pool_misses_total", "Images that needed a new buffer", pool::getMissCount);
+            metrics.registerCounter("buffer_pool_leaks_total", "Pooled images never returned", pool::getLeakCount);
+        }
+
+        @Override
+        public void respond(String method, String query, byte[] body, ResponseBuffer response) throws IOException {
+            if (!method.equals("POST") || body.length == 0) {
+                throw new IllegalArgumentException("Expected POST with an image body");
+            }
+            String specification = query == null ? null : QueryParameters.value(query, "filters");
+            FilterChain filters = specification == null ? defaultFilters : Filters.parse(specification).compileLookupTables();
+
+            try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(body))) {
+                Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+                if (!readers.hasNext()) {
+                    throw new IllegalArgumentException("Unsupported image format");
+                }
+                ImageReader reader = readers.next();
+                try {
+                    reader.setInput(input, true, true);
+                    // Only the header is read here, the pixels are decoded after admission
+                    long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                    if (pixels > maxImagePixels) {
+                        throw new IllegalArgumentException("Image of " + reader.getWidth(0) + "x" + reader.getHeight(0)
+                                + " exceeds the limit of " + maxImagePixels / 1_000_000 + " megapixels");
+                    }
+                    AdmissionController.Permit permit = admission.acquire((pixels + 999_999) / 1_000_000);
+                    try {
+                        recolor(reader, pixels, filters, response);
+                    } finally {
+                        permit.close();
+                    }
+                } finally {
+                    reader.dispose();
+                }
+            } catch (IIOException e) {
+                // Corrupt or truncated image data
+                throw new IllegalArgumentException("Cannot decode image", e);
+            }
+        }
+
+        private void recolor(ImageReader reader, long pixels, FilterChain filters, ResponseBuffer response) throws IOException {
+            long start = System.nanoTime();
+            try (ImageBufferPool.PooledImage image = pool.read(reader);
+                 ImageBufferPool.PooledImage result = pool.borrowIntRgb(image.image().getWidth(), image.image().getHeight())) {
+                long decoded = System.nanoTime();
+                decodeTime.record(decoded - start);
+
+                if (pixels < inlinePixels) {
+                    filters.apply(image.image(), result.image(), 0, 0, image.image().getWidth(), image.image().getHeight());
+                } else {
+                    filters.apply(image.image(), result.image(), scheduler);
+                }
+                long recolored = System.nanoTime();
+                recolorTime.record(recolored - decoded);
+
+                if (!ImageIO.write(result.image(), "jpg", response.outputStream())) {
+                    throw new IOException("No JPEG writer available");
+                }
+                encodeTime.record(System.nanoTime() - recolored);
+            }
+        }
+
+        @Override
+        public String getContentType() {
+            return IMAGE_CONTENT_TYPE;
+        }
+    }
+}
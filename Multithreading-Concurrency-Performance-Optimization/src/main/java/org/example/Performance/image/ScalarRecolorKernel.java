@@ -0,0 +1,28 @@
+package org.example.Performance.image;
+
+// Plain loop over the pixels, same arithmetic as LatencyMultithreading.recolorPixes but without method calls,
+// so the JIT keeps everything in registers and the loop allocates nothing
+public class ScalarRecolorKernel implements RecolorKernel {
+    public static final ScalarRecolorKernel INSTANCE = new ScalarRecolorKernel();
+
+    @Override
+    public void recolor(int[] source, int sourceOffset, int[] target, int targetOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            target[targetOffset + i] = recolor(source[sourceOffset + i]);
+        }
+    }
+
+    // Recolor a single packed pixel
+    public static int recolor(int rgb) {
+        int red = (rgb >> 16) & 0xFF;
+        int green = (rgb >> 8) & 0xFF;
+        int blue = rgb & 0xFF;
+
+        if (Math.abs(red - green) < 30 && Math.abs(red - blue) < 30 && Math.abs(green - blue) < 30) {
+            red = Math.min(255, red + 10);
+            green = Math.max(0, green - 80);
+            blue = Math.max(0, blue - 20);
+        }
+        return 0xFF000000 | red << 16 | green << 8 | blue;
+    }
+}
@@ -0,0 +1,153 @@
+package org.example.Performance.image;
+
+import org.example.Performance.image.filter.FilterChain;
+import org.example.Performance.image.filter.Filters;
+import org.example.cli.CommandLineOption;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+
+// Recolors images larger than the heap strip by strip
+// ImageIO.read() decodes the whole image and the recolor needs a second full size result,
+// here only one strip of stripHeight rows is decoded at a time (ImageReadParam source region),
+// recolored into a strip buffer and written into an output image created empty beforehand (ImageWriter.replacePixels)
+// Both strip buffers are allocated once and reused, so peak memory is a few strips no matter how large the image is
+// The output is written as uncompressed TIFF, the only standard ImageIO writer supporting prepareWriteEmpty / replacePixels
+// Any ImageIO format can be read. Tiled or striped inputs (TIFF) decode only the rows of the strip,
+// sequential formats like JPEG and PNG have to decode the rows above each strip again, so use tall strips for those
+// Usage: --input=<image> --output=<file.tif> --strip-height=256 --filters=recolor
+public class StreamingRecolor {
+    public static final int DEFAULT_STRIP_HEIGHT = 256;
+
+    private final FilterChain filters;
+    private final int stripHeight;
+    private final TileScheduler scheduler;
+
+    public StreamingRecolor(FilterChain filters, int stripHeight, TileScheduler scheduler) {
+        if (stripHeight < 1) {
+            throw new IllegalArgumentException("Strip height must be positive: " + stripHeight);
+        }
+        this.filters = filters;
+        this.stripHeight = stripHeight;
+        this.scheduler = scheduler;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path input = null;
+        Path output = null;
+        int stripHeight = DEFAULT_STRIP_HEIGHT;
+        String filters = "recolor";
+
+        for (CommandLineOption option : CommandLineOption.parse(args)) {
+            String value = option.value();
+            switch (option.name()) {
+                case "input" -> input = Paths.get(value);
+                case "output" -> output = Paths.get(value);
+                case "strip-height" -> stripHeight = Integer.parseInt(value);
+                case "filters" -> filters = value;
+                default -> throw option.unknown();
+            }
+        }
+        if (input == null || output == null) {
+            throw new IllegalArgumentException("Both --input and --output are required");
+        }
+
+        StreamingRecolor recolor = new StreamingRecolor(Filters.parse(filters).compileLookupTables(), stripHeight, TileScheduler.shared());
+        long start = System.nanoTime();
+        Rectangle size = recolor.recolor(input, output);
+        long duration = System.nanoTime() - start;
+        System.out.printf("Recolored %dx%d image in %d strips of %d rows in %.2f s, peak heap %.1f MB of %.1f MB max%n",
+                size.width, size.height, (size.height + stripHeight - 1) / stripHeight, stripHeight, duration / 1e9,
+                peakHeapUsage() / 1e6, Runtime.getRuntime().maxMemory() / 1e6);
+    }
+
+    // Recolor input into a TIFF file, returns the image size
+    public Rectangle recolor(Path input, Path output) throws IOException {
+        try (ImageInputStream inputStream = ImageIO.createImageInputStream(input.toFile())) {
+            if (inputStream == null) {
+                throw new IOException("Cannot open " + input);
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(inputStream);
+            if (!readers.hasNext()) {
+                throw new IOException("No ImageIO reader for " + input);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(inputStream, true, true);
+                return recolor(reader, output);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private Rectangle recolor(ImageReader reader, Path output) throws IOException {
+        int width = reader.getWidth(0);
+        int height = reader.getHeight(0);
+        int rows = Math.min(stripHeight, height);
+
+        // Decoded strips go into the same buffer every time
+        ImageTypeSpecifier sourceType = reader.getImageTypes(0).next();
+        BufferedImage sourceStrip = sourceType.createBufferedImage(width, rows);
+        BufferedImage resultStrip = new BufferedImage(width, rows, BufferedImage.TYPE_INT_RGB);
+        ImageReadParam readParam = reader.getDefaultReadParam();
+        readParam.setDestination(sourceStrip);
+
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("tiff").next();
+        Files.deleteIfExists(output);
+        try (ImageOutputStream outputStream = ImageIO.createImageOutputStream(output.toFile())) {
+            writer.setOutput(outputStream);
+            ImageWriteParam writeParam = writer.getDefaultWriteParam();
+            writer.prepareWriteEmpty(null, ImageTypeSpecifier.createFromRenderedImage(resultStrip), width, height,
+                    null, null, writeParam);
+
+            for (int y = 0; y < height; y += rows) {
+                int stripRows = Math.min(rows, height - y);
+                readParam.setSourceRegion(new Rectangle(0, y, width, stripRows));
+                reader.read(0, readParam);
+
+                // The last strip may be shorter, rows below it in the buffers are left over from the previous strip
+                scheduler.forEachTile(0, 0, width, stripRows,
+                        (left, top, tileWidth, tileHeight) -> filters.apply(sourceStrip, resultStrip, left, top, tileWidth, tileHeight));
+
+                Rectangle region = new Rectangle(0, y, width, stripRows);
+                writer.prepareReplacePixels(0, region);
+                writeParam.setDestinationOffset(new Point(0, y));
+                writer.replacePixels(stripRows == rows ? resultStrip : resultStrip.getSubimage(0, 0, width, stripRows), writeParam);
+                writer.endReplacePixels();
+            }
+            writer.endWriteEmpty();
+        } finally {
+            writer.dispose();
+        }
+        return new Rectangle(width, height);
+    }
+
+    // Highest heap usage since the JVM started, summed over all heap pools
+    private static long peakHeapUsage() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
@@ -0,0 +1,130 @@
+package org.example.Performance.image;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+// Runs a task over every tile of a rectangular region on a ForkJoinPool
+// The region is split recursively in halves along tile boundaries, idle workers steal the larger halves,
+// so uneven tiles (e.g. many gray pixels in one part of the image) do not leave threads waiting
+// The last row and column of tiles are clipped to the region, every pixel is covered exactly once for any size
+// One shared pool serves all images, threads are not created per call
+public class TileScheduler {
+    // Full-width strips keep every tile a contiguous run of rows in a row-major raster
+    public static final int DEFAULT_TILE_WIDTH = Integer.MAX_VALUE;
+    public static final int DEFAULT_TILE_HEIGHT = 32;
+
+    private static final TileScheduler SHARED = new TileScheduler(createPool(Runtime.getRuntime().availableProcessors()),
+            DEFAULT_TILE_WIDTH, DEFAULT_TILE_HEIGHT);
+
+    private final ForkJoinPool pool;
+    private final int tileWidth;
+    private final int tileHeight;
+
+    public TileScheduler(ForkJoinPool pool, int tileWidth, int tileHeight) {
+        if (tileWidth < 1 || tileHeight < 1) {
+            throw new IllegalArgumentException("Tile size must be positive: " + tileWidth + "x" + tileHeight);
+        }
+        this.pool = pool;
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+    }
+
+    // Scheduler on the shared image pool with the default tile size
+    public static TileScheduler shared() {
+        return SHARED;
+    }
+
+    // Scheduler on the same pool with another tile size
+    public TileScheduler withTileSize(int tileWidth, int tileHeight) {
+        return new TileScheduler(pool, tileWidth, tileHeight);
+    }
+
+    // Pool with daemon worker threads, so an unused pool never keeps the JVM alive
+    public static ForkJoinPool createPool(int parallelism) {
+        return new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("image-worker-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    // Run the task for every tile of the region and wait until all of them are done
+    // Exceptions thrown by a task are rethrown here
+    public void forEachTile(int left, int top, int width, int height, TileTask task) {
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        int columns = (int) (((long) width + tileWidth - 1) / tileWidth);
+        int rows = (int) (((long) height + tileHeight - 1) / tileHeight);
+        pool.invoke(new TileAction(task, left, top, width, height, 0, columns, 0, rows));
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    public int getTileWidth() {
+        return tileWidth;
+    }
+
+    public int getTileHeight() {
+        return tileHeight;
+    }
+
+    // Work on a single tile, called concurrently for different tiles
+    @FunctionalInterface
+    public interface TileTask {
+        void process(int left, int top, int width, int height);
+    }
+
+    // Range of tile columns [firstColumn, lastColumn) and tile rows [firstRow, lastRow) of the region
+    private class TileAction extends RecursiveAction {
+        private final TileTask task;
+        private final int left;
+        private final int top;
+        private final int width;
+        private final int height;
+        private final int firstColumn;
+        private final int lastColumn;
+        private final int firstRow;
+        private final int lastRow;
+
+        private TileAction(TileTask task, int left, int top, int width, int height,
+                           int firstColumn, int lastColumn, int firstRow, int lastRow) {
+            this.task = task;
+            this.left = left;
+            this.top = top;
+            this.width = width;
+            this.height = height;
+            this.firstColumn = firstColumn;
+            this.lastColumn = lastColumn;
+            this.firstRow = firstRow;
+            this.lastRow = lastRow;
+        }
+
+        @Override
+        protected void compute() {
+            int columns = lastColumn - firstColumn;
+            int rows = lastRow - firstRow;
+            if (columns == 1 && rows == 1) {
+                long tileLeft = (long) firstColumn * tileWidth;
+                long tileTop = (long) firstRow * tileHeight;
+                task.process(left + (int) tileLeft, top + (int) tileTop,
+                        (int) Math.min(tileWidth, width - tileLeft), (int) Math.min(tileHeight, height - tileTop));
+                return;
+            }
+            // Split the longer side in halves, so tiles of one half stay next to each other in memory
+            if (rows >= columns) {
+                int middle = firstRow + rows / 2;
+                invokeAll(new TileAction(task, left, top, width, height, firstColumn, lastColumn, firstRow, middle),
+                        new TileAction(task, left, top, width, height, firstColumn, lastColumn, middle, lastRow));
+            } else {
+                int middle = firstColumn + columns / 2;
+                invokeAll(new TileAction(task, left, top, width, height, firstColumn, middle, firstRow, lastRow),
+                        new TileAction(task, left, top, width, height, middle, lastColumn, firstRow, lastRow));
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package org.example.Performance.image;
+
+import org.example.Performance.LatencyMultithreading;
+import org.example.cli.CommandLineOption;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Random;
+
+// Shows the cost of walking a row-major raster column by column, as recolorImage used to do
+// On an 8K x 8K image every step of the inner loop jumps a full row (32 KB for INT_RGB),
+// so each pixel touches a different cache line and page, while the row-major order reads them sequentially
+// The image is generated (gray and colored noise), so the result does not depend on a particular photo
+// Variants:
+// column-major / row-major per pixel - getRGB / setRGB for every pixel in both loop orders
+// column-major / row-major array     - the same arithmetic directly on the int[] rasters, only the order differs
+// row-major blocks                   - BulkRecolor, which also blocks non-int rasters into cache sized chunks
+// row blocks fork/join               - rowsPerTask full rows per fork/join task on the shared pool
+// Usage: --width=8192 --height=8192 --type=int|bgr --rows-per-task=32 --per-pixel=true|false
+public class TraversalBenchmark {
+
+    public static void main(String[] args) {
+        int width = 8192;
+        int height = 8192;
+        String type = "int";
+        int rowsPerTask = TileScheduler.DEFAULT_TILE_HEIGHT;
+        boolean perPixel = true;
+
+        for (CommandLineOption option : CommandLineOption.parse(args)) {
+            String value = option.value();
+            switch (option.name()) {
+                case "width" -> width = Integer.parseInt(value);
+                case "height" -> height = Integer.parseInt(value);
+                case "type" -> type = value;
+                case "rows-per-task" -> rowsPerTask = Integer.parseInt(value);
+                case "per-pixel" -> perPixel = Boolean.parseBoolean(value);
+                default -> throw option.unknown();
+            }
+        }
+
+        int imageType = switch (type) {
+            case "int" -> BufferedImage.TYPE_INT_RGB;
+            case "bgr" -> BufferedImage.TYPE_3BYTE_BGR;
+            default -> throw new IllegalArgumentException("Unknown image type: " + type);
+        };
+        BufferedImage image = generate(width, height, imageType);
+        BufferedImage result = new BufferedImage(width, height, imageType);
+        BufferedImage expected = new BufferedImage(width, height, imageType);
+        LatencyMultithreading.recolorImageBulk(image, expected, 0, 0, width, height);
+        System.out.println("Generated " + width + "x" + height + " " + type + " image");
+
+        // Warm up every variant on a small region, so the JIT has compiled them before the measured run
+        int finalRowsPerTask = rowsPerTask;
+        for (int i = 0; i < 5; i++) {
+            recolorColumnMajor(image, result, 512, 512);
+            LatencyMultithreading.recolorImage(image, result, 0, 0, 512, 512);
+            if (imageType == BufferedImage.TYPE_INT_RGB) {
+                recolorArray(image, result, 512, 512, false);
+                recolorArray(image, result, 512, 512, true);
+            }
+            LatencyMultithreading.recolorImageBulk(image, result, 0, 0, 512, 512);
+        }
+
+        if (perPixel) {
+            run("column-major per pixel", () -> recolorColumnMajor(image, result, image.getWidth(), image.getHeight()), result, expected);
+            run("row-major per pixel", () -> LatencyMultithreading.recolorImage(image, result, 0, 0, image.getWidth(), image.getHeight()), result, expected);
+        }
+        if (imageType == BufferedImage.TYPE_INT_RGB) {
+            run("column-major array", () -> recolorArray(image, result, image.getWidth(), image.getHeight(), false), result, expected);
+            run("row-major array", () -> recolorArray(image, result, image.getWidth(), image.getHeight(), true), result, expected);
+        }
+        run("row-major blocks", () -> LatencyMultithreading.recolorImageBulk(image, result, 0, 0, image.getWidth(), image.getHeight()), result, expected);
+        run("row blocks fork/join (" + rowsPerTask + " rows)",
+                () -> LatencyMultithreading.recolorRowBlocks(image, result, finalRowsPerTask), result, expected);
+    }
+
+    // Loop order of the original recolorImage: x outside, y inside
+    private static void recolorColumnMajor(BufferedImage image, BufferedImage resultImage, int width, int height) {
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                LatencyMultithreading.recolorPixes(image, resultImage, x, y);
+            }
+        }
+    }
+
+    private static void recolorArray(BufferedImage image, BufferedImage resultImage, int width, int height, boolean rowMajor) {
+        PixelAccess.IntPixels source = PixelAccess.intPixels(image);
+        PixelAccess.IntPixels target = PixelAccess.intPixels(resultImage);
+        int[] sourceData = source.data();
+        int[] targetData = target.data();
+        if (rowMajor) {
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    targetData[target.indexOf(x, y)] = ScalarRecolorKernel.recolor(sourceData[source.indexOf(x, y)]);
+                }
+            }
+        } else {
+            for (int x = 0; x < width; x++) {
+                for (int y = 0; y < height; y++) {
+                    targetData[target.indexOf(x, y)] = ScalarRecolorKernel.recolor(sourceData[source.indexOf(x, y)]);
+                }
+            }
+        }
+    }
+
+    private static void run(String name, Runnable recolor, BufferedImage result, BufferedImage expected) {
+        clear(result);
+        long start = System.nanoTime();
+        recolor.run();
+        long duration = System.nanoTime() - start;
+        long pixels = (long) result.getWidth() * result.getHeight();
+        System.out.printf("%-34s %9.1f ms %7.2f ns/pixel%n", name, duration / 1e6, (double) duration / pixels);
+        verify(result, expected);
+    }
+
+    private static void clear(BufferedImage image) {
+        int[] row = new int[image.getWidth()];
+        for (int y = 0; y < image.getHeight(); y++) {
+            PixelAccess.writeRows(image, 0, y, row.length, 1, row);
+        }
+    }
+
+    private static void verify(BufferedImage result, BufferedImage expected) {
+        int width = result.getWidth();
+        int[] actualRow = new int[width];
+        int[] expectedRow = new int[width];
+        for (int y = 0; y < result.getHeight(); y++) {
+            PixelAccess.readRows(result, 0, y, width, 1, actualRow);
+            PixelAccess.readRows(expected, 0, y, width, 1, expectedRow);
+            if (!Arrays.equals(actualRow, expectedRow)) {
+                throw new IllegalStateException("Result differs in row " + y);
+            }
+        }
+    }
+
+    // Half of the pixels are shades of gray, so both branches of the recolor rule are taken
+    private static BufferedImage generate(int width, int height, int imageType) {
+        BufferedImage image = new BufferedImage(width, height, imageType);
+        Random random = new Random(42);
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (random.nextBoolean()) {
+                    int gray = random.nextInt(226);
+                    row[x] = 0xFF000000 | gray << 16 | (gray + random.nextInt(30)) << 8 | (gray + random.nextInt(30));
+                } else {
+                    row[x] = 0xFF000000 | random.nextInt(0x1000000);
+                }
+            }
+            PixelAccess.writeRows(image, 0, y, width, 1, row);
+        }
+        return image;
+    }
+}
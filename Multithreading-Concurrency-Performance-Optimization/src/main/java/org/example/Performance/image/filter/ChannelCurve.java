@@ -0,0 +1,21 @@
+package org.example.Performance.image.filter;
+
+// Point filter mapping every channel on its own: new red depends only on red and so on, alpha is kept
+// Such filters can be compiled into 256 entry lookup tables (see LookupTableFilter), and consecutive ones into a single table
+public interface ChannelCurve extends PointFilter {
+
+    // Each method maps 0..255 to 0..255
+    int red(int red);
+
+    int green(int green);
+
+    int blue(int blue);
+
+    @Override
+    default int filter(int argb) {
+        return argb & 0xFF000000
+                | red((argb >> 16) & 0xFF) << 16
+                | green((argb >> 8) & 0xFF) << 8
+                | blue(argb & 0xFF);
+    }
+}
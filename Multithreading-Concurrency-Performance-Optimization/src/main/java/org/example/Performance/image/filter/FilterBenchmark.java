@@ -0,0 +1,77 @@
+package org.example.Performance.image.filter;
+
+import org.example.Performance.image.PixelAccess;
+import org.example.cli.CommandLineOption;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+// Compares three ways of running a chain of filters over an image (single threaded, INT_RGB copy of the image):
+// separate passes - every filter runs over the whole image, the image goes through memory once per filter
+// fused          - FilterChain runs all filters over one cache sized block before moving to the next
+// fused + tables - as fused, with consecutive channel curves compiled into one lookup table
+// Usage: --image=src/main/resources/many-flowers.jpg --filters=brightness:20,contrast:1.2,invert,grayscale,threshold:100 --iterations=5
+public class FilterBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        String imageFile = "src/main/resources/many-flowers.jpg";
+        String specification = "brightness:20,contrast:1.2,invert,grayscale,threshold:100";
+        int iterations = 5;
+
+        for (CommandLineOption option : CommandLineOption.parse(args)) {
+            String value = option.value();
+            switch (option.name()) {
+                case "image" -> imageFile = value;
+                case "filters" -> specification = value;
+                case "iterations" -> iterations = Integer.parseInt(value);
+                default -> throw option.unknown();
+            }
+        }
+
+        BufferedImage decoded = ImageIO.read(new File(imageFile));
+        int length = decoded.getWidth() * decoded.getHeight();
+        int[] original = new int[length];
+        PixelAccess.readRows(decoded, 0, 0, decoded.getWidth(), decoded.getHeight(), original);
+
+        FilterChain chain = Filters.parse(specification);
+        FilterChain compiled = chain.compileLookupTables();
+        System.out.println("Filters " + specification + " on " + imageFile + ": " + chain.getFilters().size()
+                + " filters, " + compiled.getFilters().size() + " after compiling lookup tables");
+
+        int[] separate = run("separate passes", original, iterations, pixels -> {
+            for (PixelFilter filter : chain.getFilters()) {
+                filter.apply(pixels, 0, pixels.length);
+            }
+        });
+        int[] fused = run("fused", original, iterations, pixels -> chain.apply(pixels, 0, pixels.length));
+        int[] tables = run("fused + tables", original, iterations, pixels -> compiled.apply(pixels, 0, pixels.length));
+
+        if (!Arrays.equals(separate, fused) || !Arrays.equals(separate, tables)) {
+            throw new IllegalStateException("Results differ");
+        }
+        System.out.println("Results are identical");
+    }
+
+    private static int[] run(String name, int[] original, int iterations, Consumer<int[]> filter) {
+        int[] pixels = original.clone();
+        // Warm-up
+        for (int i = 0; i < 3; i++) {
+            System.arraycopy(original, 0, pixels, 0, pixels.length);
+            filter.accept(pixels);
+        }
+        long duration = 0;
+        for (int i = 0; i < iterations; i++) {
+            System.arraycopy(original, 0, pixels, 0, pixels.length);
+            long start = System.nanoTime();
+            filter.accept(pixels);
+            duration += System.nanoTime() - start;
+        }
+        System.out.printf("%-16s %8.2f ms/image %6.2f ns/pixel%n", name, duration / 1e6 / iterations,
+                (double) duration / iterations / pixels.length);
+        return pixels;
+    }
+}
@@ -0,0 +1,96 @@
+package org.example.Performance.image.filter;
+
+import org.example.Performance.image.BulkRecolor;
+import org.example.Performance.image.PixelAccess;
+import org.example.Performance.image.TileScheduler;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+// Filters applied one after another, fused into a single pass over the image
+// Instead of running each filter over the whole image (one full read and write of memory per filter),
+// the image is processed in blocks of BulkRecolor.BLOCK_PIXELS: a block is read once, all filters run over it
+// while it is in L2, and it is written once
+// With compileLookupTables() consecutive channel curves are additionally merged into one LookupTableFilter
+public class FilterChain implements PixelFilter {
+    private final List<PixelFilter> filters;
+
+    public FilterChain(List<? extends PixelFilter> filters) {
+        this.filters = List.copyOf(filters);
+    }
+
+    // Chain where every run of consecutive ChannelCurves is replaced by one lookup table
+    // Composing the curves saves a pass per curve and three megamorphic interface calls per pixel and curve
+    public FilterChain compileLookupTables() {
+        List<PixelFilter> compiled = new ArrayList<>();
+        List<ChannelCurve> curves = new ArrayList<>();
+        for (PixelFilter filter : filters) {
+            if (filter instanceof ChannelCurve curve) {
+                curves.add(curve);
+                continue;
+            }
+            flushCurves(curves, compiled);
+            compiled.add(filter);
+        }
+        flushCurves(curves, compiled);
+        return new FilterChain(compiled);
+    }
+
+    // Run all filters block by block over the run of pixels
+    @Override
+    public void apply(int[] pixels, int offset, int length) {
+        for (int start = offset; start < offset + length; start += BulkRecolor.BLOCK_PIXELS) {
+            int blockLength = Math.min(BulkRecolor.BLOCK_PIXELS, offset + length - start);
+            for (PixelFilter filter : filters) {
+                filter.apply(pixels, start, blockLength);
+            }
+        }
+    }
+
+    // Filter the region of the image into resultImage (may be the same image) in a single pass
+    public void apply(BufferedImage image, BufferedImage resultImage, int left, int top, int width, int height) {
+        int right = Math.min(left + width, Math.min(image.getWidth(), resultImage.getWidth()));
+        int bottom = Math.min(top + height, Math.min(image.getHeight(), resultImage.getHeight()));
+        int rowWidth = right - left;
+        if (rowWidth <= 0 || bottom <= top) {
+            return;
+        }
+
+        int blockWidth = Math.min(rowWidth, BulkRecolor.BLOCK_PIXELS);
+        int blockHeight = Math.max(1, BulkRecolor.BLOCK_PIXELS / blockWidth);
+        int[] block = new int[blockWidth * Math.min(blockHeight, bottom - top)];
+        for (int y = top; y < bottom; y += blockHeight) {
+            int rows = Math.min(blockHeight, bottom - y);
+            for (int x = left; x < right; x += blockWidth) {
+                int columns = Math.min(blockWidth, right - x);
+                PixelAccess.readRows(image, x, y, columns, rows, block);
+                for (PixelFilter filter : filters) {
+                    filter.apply(block, 0, columns * rows);
+                }
+                PixelAccess.writeRows(resultImage, x, y, columns, rows, block);
+            }
+        }
+    }
+
+    // Filter the whole image with tiles on the scheduler's pool
+    public void apply(BufferedImage image, BufferedImage resultImage, TileScheduler scheduler) {
+        scheduler.forEachTile(0, 0, image.getWidth(), image.getHeight(),
+                (left, top, width, height) -> apply(image, resultImage, left, top, width, height));
+    }
+
+    public List<PixelFilter> getFilters() {
+        return filters;
+    }
+
+    // Only runs of two or more curves are compiled: a lone curve the JIT can inline is vectorized by C2
+    // and beats the table loads, which cannot be vectorized
+    private static void flushCurves(List<ChannelCurve> curves, List<PixelFilter> compiled) {
+        if (curves.size() == 1) {
+            compiled.add(curves.get(0));
+        } else if (!curves.isEmpty()) {
+            compiled.add(LookupTableFilter.compile(curves));
+        }
+        curves.clear();
+    }
+}
@@ -0,0 +1,197 @@
+package org.example.Performance.image.filter;
+
+import org.example.Performance.image.RecolorKernel;
+import org.example.Performance.image.RecolorKernels;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.IntUnaryOperator;
+
+// Built-in filters and the parser for filter chain specifications
+// Specification: comma separated filters with optional ':' parameter, e.g. "grayscale,brightness:20,threshold:128"
+//   recolor          - the gray to reddish rule of LatencyMultithreading with the default kernel
+//   grayscale        - luma (BT.601 weights)
+//   threshold:<0-255> - white where luma >= level, black elsewhere
+//   brightness:<n>   - add n to every channel, clamped
+//   contrast:<f>     - scale the distance from 128 by f, clamped
+//   invert           - 255 - value for every channel
+//   remap:<order>    - output red, green, blue taken from the given input channels, e.g. "bgr" swaps red and blue
+public final class Filters {
+
+    private Filters() {
+    }
+
+    public static FilterChain parse(String specification) {
+        List<PixelFilter> filters = new ArrayList<>();
+        for (String part : specification.split(",")) {
+            String name = part.trim();
+            String parameter = null;
+            int separator = name.indexOf(':');
+            if (separator >= 0) {
+                parameter = name.substring(separator + 1);
+                name = name.substring(0, separator);
+            }
+            filters.add(switch (name.toLowerCase(Locale.ROOT)) {
+                case "recolor" -> recolor(RecolorKernels.defaultKernel());
+                case "grayscale" -> grayscale();
+                case "threshold" -> threshold(Integer.parseInt(required(name, parameter)));
+                case "brightness" -> brightness(Integer.parseInt(required(name, parameter)));
+                case "contrast" -> contrast(Double.parseDouble(required(name, parameter)));
+                case "invert" -> invert();
+                case "remap" -> remap(required(name, parameter));
+                default -> throw new IllegalArgumentException("Unknown filter: " + name);
+            });
+        }
+        return new FilterChain(filters);
+    }
+
+    // The original recolor rule, runs the kernel in place
+    public static PixelFilter recolor(RecolorKernel kernel) {
+        return (pixels, offset, length) -> kernel.recolor(pixels, offset, pixels, offset, length);
+    }
+
+    public static PointFilter grayscale() {
+        return new Grayscale();
+    }
+
+    public static PointFilter threshold(int level) {
+        checkChannel(level);
+        return new Threshold(level);
+    }
+
+    public static ChannelCurve brightness(int delta) {
+        return curve(value -> clamp(value + delta));
+    }
+
+    public static ChannelCurve contrast(double factor) {
+        return curve(value -> clamp((int) Math.round((value - 128) * factor + 128)));
+    }
+
+    public static ChannelCurve invert() {
+        return curve(value -> 255 - value);
+    }
+
+    // order names the input channel for output red, green and blue, e.g. "grb"
+    public static PointFilter remap(String order) {
+        if (order.length() != 3) {
+            throw new IllegalArgumentException("Channel order must have 3 letters of r, g, b: " + order);
+        }
+        return new Remap(shiftOf(order.charAt(0)), shiftOf(order.charAt(1)), shiftOf(order.charAt(2)));
+    }
+
+    // Same curve for all three channels
+    public static ChannelCurve curve(IntUnaryOperator function) {
+        return new ChannelCurve() {
+            @Override
+            public int red(int red) {
+                return function.applyAsInt(red);
+            }
+
+            @Override
+            public int green(int green) {
+                return function.applyAsInt(green);
+            }
+
+            @Override
+            public int blue(int blue) {
+                return function.applyAsInt(blue);
+            }
+        };
+    }
+
+    // Integer BT.601 luma: (77 R + 150 G + 29 B) / 256
+    static int luma(int argb) {
+        return (77 * ((argb >> 16) & 0xFF) + 150 * ((argb >> 8) & 0xFF) + 29 * (argb & 0xFF)) >> 8;
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+
+    private static void checkChannel(int value) {
+        if (value < 0 || value > 255) {
+            throw new IllegalArgumentException("Channel value must be 0..255: " + value);
+        }
+    }
+
+    private static int shiftOf(char channel) {
+        return switch (Character.toLowerCase(channel)) {
+            case 'r' -> 16;
+            case 'g' -> 8;
+            case 'b' -> 0;
+            default -> throw new IllegalArgumentException("Unknown channel: " + channel);
+        };
+    }
+
+    private static String required(String name, String parameter) {
+        if (parameter == null || parameter.isEmpty()) {
+            throw new IllegalArgumentException("Filter " + name + " needs a parameter");
+        }
+        return parameter;
+    }
+
+    // The point filters below override apply() with their own loop, so the per-pixel call is monomorphic and inlined
+
+    private static final class Grayscale implements PointFilter {
+        @Override
+        public int filter(int argb) {
+            int luma = luma(argb);
+            return argb & 0xFF000000 | luma << 16 | luma << 8 | luma;
+        }
+
+        @Override
+        public void apply(int[] pixels, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                pixels[i] = filter(pixels[i]);
+            }
+        }
+    }
+
+    private static final class Threshold implements PointFilter {
+        private final int level;
+
+        private Threshold(int level) {
+            this.level = level;
+        }
+
+        @Override
+        public int filter(int argb) {
+            return argb & 0xFF000000 | (luma(argb) >= level ? 0xFFFFFF : 0);
+        }
+
+        @Override
+        public void apply(int[] pixels, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                pixels[i] = filter(pixels[i]);
+            }
+        }
+    }
+
+    private static final class Remap implements PointFilter {
+        private final int redShift;
+        private final int greenShift;
+        private final int blueShift;
+
+        private Remap(int redShift, int greenShift, int blueShift) {
+            this.redShift = redShift;
+            this.greenShift = greenShift;
+            this.blueShift = blueShift;
+        }
+
+        @Override
+        public int filter(int argb) {
+            return argb & 0xFF000000
+                    | ((argb >> redShift) & 0xFF) << 16
+                    | ((argb >> greenShift) & 0xFF) << 8
+                    | ((argb >> blueShift) & 0xFF);
+        }
+
+        @Override
+        public void apply(int[] pixels, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                pixels[i] = filter(pixels[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.example.Performance.image.filter;
+
+import java.util.List;
+
+// Channel curves evaluated once for all 256 values of each channel, applying it is three table loads per pixel
+// The tables hold the composition of all compiled curves, so a chain of brightness, contrast, invert, ...
+// costs the same as a single one
+public class LookupTableFilter implements ChannelCurve {
+    private final int[] red = new int[256];
+    private final int[] green = new int[256];
+    private final int[] blue = new int[256];
+
+    // Tables for applying the curves one after another
+    public static LookupTableFilter compile(List<? extends ChannelCurve> curves) {
+        LookupTableFilter table = new LookupTableFilter();
+        for (int value = 0; value < 256; value++) {
+            int red = value;
+            int green = value;
+            int blue = value;
+            for (ChannelCurve curve : curves) {
+                red = curve.red(red);
+                green = curve.green(green);
+                blue = curve.blue(blue);
+            }
+            table.red[value] = red;
+            table.green[value] = green;
+            table.blue[value] = blue;
+        }
+        return table;
+    }
+
+    @Override
+    public int red(int red) {
+        return this.red[red];
+    }
+
+    @Override
+    public int green(int green) {
+        return this.green[green];
+    }
+
+    @Override
+    public int blue(int blue) {
+        return this.blue[blue];
+    }
+
+    @Override
+    public void apply(int[] pixels, int offset, int length) {
+        int[] red = this.red;
+        int[] green = this.green;
+        int[] blue = this.blue;
+        for (int i = offset; i < offset + length; i++) {
+            int argb = pixels[i];
+            pixels[i] = argb & 0xFF000000
+                    | red[(argb >> 16) & 0xFF] << 16
+                    | green[(argb >> 8) & 0xFF] << 8
+                    | blue[argb & 0xFF];
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package org.example.Performance.image.filter;
+
+// Image filter working in place on a run of packed 0xAARRGGBB pixels - a row, several rows or a whole tile
+// Filters get whole runs instead of single pixels, so a FilterChain can run every filter over one block
+// while it is in cache and the JIT can compile each filter to a tight loop
+public interface PixelFilter {
+
+    void apply(int[] pixels, int offset, int length);
+}
@@ -0,0 +1,14 @@
+package org.example.Performance.image.filter;
+
+// Filter where every output pixel depends only on the same input pixel
+public interface PointFilter extends PixelFilter {
+
+    int filter(int argb);
+
+    @Override
+    default void apply(int[] pixels, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            pixels[i] = filter(pixels[i]);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.example.Performance.loadtest;
+
+import org.example.Performance.ThroughputMultithreading;
+import org.example.Performance.search.SearchMode;
+import org.example.Performance.search.WordCounter;
+import org.example.Performance.search.WordCounters;
+import org.example.Performance.server.ResponseBuffer;
+import org.example.cli.CommandLineOption;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+// Measures the bytes allocated per /search request by the handler code, without any network in between
+// Compares the previous request path (String.split of the query, Long.toString(count).getBytes() for the response)
+// with WordCountHandler writing into a reused ResponseBuffer
+// Uses the per-thread allocation counter of com.sun.management.ThreadMXBean, which is exact but only covers this thread
+// For the whole server (including the HTTP engine) record a flight recording under load instead:
+//   java -XX:StartFlightRecording=duration=60s,filename=search.jfr,settings=profile ... ThroughputMultithreading
+//   jfr print --events jdk.ObjectAllocationSample search.jfr
+// Usage: --corpus=src/main/resources/war_and_peace.txt --words=src/main/resources/search_words.csv --iterations=200000
+public class AllocationReport {
+
+    public static void main(String[] args) throws IOException {
+        String corpus = "src/main/resources/war_and_peace.txt";
+        String wordsFile = "src/main/resources/search_words.csv";
+        int iterations = 200_000;
+
+        for (CommandLineOption option : CommandLineOption.parse(args)) {
+            String value = option.value();
+            switch (option.name()) {
+                case "corpus" -> corpus = value;
+                case "words" -> wordsFile = value;
+                case "iterations" -> iterations = Integer.parseInt(value);
+                default -> throw option.unknown();
+            }
+        }
+
+        List<String> queries = Files.readAllLines(Paths.get(wordsFile)).stream()
+                .map(String::trim)
+                .filter(word -> !word.isEmpty())
+                .map(word -> "word=" + word + "&mode=index")
+                .toList();
+        WordCounters wordCounters = WordCounters.forText(Files.readString(Paths.get(corpus)), SearchMode.INDEX);
+
+        WordCounter counter = wordCounters.forMode(SearchMode.INDEX);
+        ThroughputMultithreading.WordCountHandler handler = new ThroughputMultithreading.WordCountHandler(wordCounters);
+        ResponseBuffer response = new ResponseBuffer();
+
+        // Both variants run once before measuring so class loading and JIT compilation are not counted
+        for (int round = 0; round < 2; round++) {
+            boolean report = round == 1;
+
+            long before = allocatedBytes();
+            long checksum = 0;
+            for (int i = 0; i < iterations; i++) {
+                checksum += previousRespond(counter, queries.get(i % queries.size())).length;
+            }
+            long previous = allocatedBytes() - before;
+
+            before = allocatedBytes();
+            for (int i = 0; i < iterations; i++) {
+                response.reset();
+                handler.respond("GET", queries.get(i % queries.size()), null, response);
+                checksum -= response.length();
+            }
+            long current = allocatedBytes() - before;
+
+            if (report) {
+                if (checksum != 0) {
+                    throw new IllegalStateException("Responses of both variants differ");
+                }
+                System.out.printf("Previous request path: %.1f bytes/request%n", (double) previous / iterations);
+                System.out.printf("Current request path:  %.1f bytes/request%n", (double) current / iterations);
+            }
+        }
+    }
+
+    // Handler logic before the ResponseBuffer was introduced
+    private static byte[] previousRespond(WordCounter counter, String query) {
+        String word = null;
+        for (String parameter : query.split("&")) {
+            String[] keyValue = parameter.split("=", 2);
+            String action = keyValue[0];
+            String value = keyValue.length > 1 ? keyValue[1] : "";
+            if (action.equals("word")) {
+                word = value;
+            } else if (action.equals("mode")) {
+                SearchMode.fromString(value);
+            }
+        }
+        long count = counter.count(word);
+        return Long.toString(count).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+}
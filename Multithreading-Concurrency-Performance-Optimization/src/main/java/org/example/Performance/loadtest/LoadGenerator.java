@@ -0,0 +1,204 @@
+package org.example.Performance.loadtest;
+
+import org.example.Performance.metrics.LatencyHistogram;
+import org.example.cli.CommandLineOption;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Load generator for the word count server, replacement for performance_test_plan.jmx
+// Replays the words from search_words.csv against /search?word= using java.net.http.HttpClient on virtual threads
+// Two modes are supported:
+// closed - a fixed number of virtual users, each sends the next request only after the previous response arrived
+//          (same as the JMeter Thread Group), throughput is limited by server latency
+// open   - requests are started at a fixed arrival rate no matter how fast the server answers
+//          latency is measured from the intended start time, so queueing in the server is not hidden (no coordinated omission)
+// Usage: --url=http://localhost:8000/search --words=src/main/resources/search_words.csv --mode=closed|open
+//        --concurrency=4 --rate=5000 --duration=30 --warmup=5 (durations in seconds)
+//        --concurrency is the number of users in closed mode and the in-flight limit in open mode,
+//        where it defaults to the rate (one second of requests)
+public class LoadGenerator {
+    private static final double[] REPORTED_PERCENTILES = {50.0, 75.0, 90.0, 99.0, 99.9, 99.99, 100.0};
+
+    private final HttpClient client;
+    private final List<URI> requests;
+    private final AtomicLong nextRequest = new AtomicLong();
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private volatile boolean measuring = false;
+    private volatile boolean running = true;
+
+    public LoadGenerator(String url, List<String> words) {
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        // Encode every URI once so request creation does not add to the measured latency
+        this.requests = words.stream()
+                .map(word -> URI.create(url + "?word=" + URLEncoder.encode(word, StandardCharsets.UTF_8)))
+                .toList();
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String url = "http://localhost:8000/search";
+        String wordsFile = "src/main/resources/search_words.csv";
+        String mode = "closed";
+        int concurrency = -1;
+        int rate = 1000;
+        int duration = 30;
+        int warmup = 5;
+
+        for (CommandLineOption option : CommandLineOption.parse(args)) {
+            String value = option.value();
+            switch (option.name()) {
+                case "url" -> url = value;
+                case "words" -> wordsFile = value;
+                case "mode" -> mode = value;
+                case "concurrency" -> concurrency = Integer.parseInt(value);
+                case "rate" -> rate = Integer.parseInt(value);
+                case "duration" -> duration = Integer.parseInt(value);
+                case "warmup" -> warmup = Integer.parseInt(value);
+                default -> throw option.unknown();
+            }
+        }
+
+        List<String> words = Files.readAllLines(Paths.get(wordsFile)).stream()
+                .map(String::trim)
+                .filter(word -> !word.isEmpty())
+                .toList();
+
+        LoadGenerator generator = new LoadGenerator(url, words);
+        System.out.println("Replaying " + words.size() + " words against " + url + " in " + mode + " loop mode");
+        if (mode.equals("open")) {
+            generator.runOpenLoop(rate, concurrency < 0 ? rate : concurrency, warmup, duration);
+        } else if (mode.equals("closed")) {
+            generator.runClosedLoop(concurrency < 0 ? 4 : concurrency, warmup, duration);
+        } else {
+            throw new IllegalArgumentException("Unknown mode: " + mode);
+        }
+    }
+
+    // Closed loop - every virtual user waits for its response before sending the next request
+    public void runClosedLoop(int users, int warmupSeconds, int durationSeconds) throws InterruptedException {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < users; i++) {
+                executor.submit(() -> {
+                    while (running) {
+                        send(System.nanoTime());
+                    }
+                });
+            }
+            measure(warmupSeconds, durationSeconds);
+        }
+    }
+
+    // Open loop - a pacer starts requests at a fixed rate, each on its own virtual thread
+    // Requests exceeding maxInFlight are counted as dropped instead of being queued, so the generator never falls behind
+    public void runOpenLoop(int requestsPerSecond, int maxInFlight, int warmupSeconds, int durationSeconds) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / requestsPerSecond;
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Thread pacer = Thread.ofPlatform().name("load-generator-pacer").start(() -> {
+                long intendedStart = System.nanoTime();
+                while (running) {
+                    long delay = intendedStart - System.nanoTime();
+                    if (delay > 0) {
+                        LockSupport.parkNanos(delay);
+                        continue;
+                    }
+                    final long requestStart = intendedStart;
+                    if (inFlight.tryAcquire()) {
+                        executor.submit(() -> {
+                            try {
+                                send(requestStart);
+                            } finally {
+                                inFlight.release();
+                            }
+                        });
+                    } else if (measuring) {
+                        dropped.increment();
+                    }
+                    intendedStart += intervalNanos;
+                }
+            });
+            measure(warmupSeconds, durationSeconds);
+            pacer.join();
+        }
+    }
+
+    // Send the next word and record latency measured from the given start time
+    private void send(long startNanos) {
+        URI uri = requests.get((int) (nextRequest.getAndIncrement() % requests.size()));
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(10)).GET().build();
+        try {
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+            if (!measuring) {
+                return;
+            }
+            if (response.statusCode() == 200) {
+                histogram.record(latencyMicros);
+                completed.increment();
+            } else {
+                errors.increment();
+            }
+        } catch (IOException e) {
+            if (measuring) {
+                errors.increment();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Run warmup, then record results for the given duration and print the report
+    private void measure(int warmupSeconds, int durationSeconds) throws InterruptedException {
+        Thread.sleep(TimeUnit.SECONDS.toMillis(warmupSeconds));
+        measuring = true;
+        long start = System.nanoTime();
+        Thread.sleep(TimeUnit.SECONDS.toMillis(durationSeconds));
+        measuring = false;
+        long elapsed = System.nanoTime() - start;
+        running = false;
+        printReport(elapsed);
+    }
+
+    private void printReport(long elapsedNanos) {
+        double seconds = elapsedNanos / 1_000_000_000.0;
+        System.out.printf("Requests: %d, errors: %d, dropped: %d%n", completed.sum(), errors.sum(), dropped.sum());
+        System.out.printf("Throughput: %.1f req/sec%n", completed.sum() / seconds);
+        System.out.printf("Latency mean: %.3f ms%n", histogram.getMean() / 1000.0);
+        for (double percentile : REPORTED_PERCENTILES) {
+            System.out.printf("Latency p%-6s %10.3f ms%n", formatPercentile(percentile) + ":",
+                    histogram.getValueAtPercentile(percentile) / 1000.0);
+        }
+    }
+
+    private static String formatPercentile(double percentile) {
+        return percentile == Math.rint(percentile) ? Integer.toString((int) percentile) : Double.toString(percentile);
+    }
+
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+}
@@ -0,0 +1,120 @@
+package org.example.Performance.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Lock-free histogram of non-negative long values (e.g. latencies in microseconds) in the style of HdrHistogram
+// Values below 128 are counted exactly, above that every power of two range is split into 64 linear sub-buckets,
+// so any recorded value is reported with a relative error below 1/64 (~1.6%) over the full long range
+// Recording is a single atomic increment, so it can be called from any number of threads without locking
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT / 2;
+    private static final int BUCKET_COUNT = 64 - SUB_BUCKET_BITS + 1;
+    private static final int INDEX_COUNT = SUB_BUCKET_COUNT + BUCKET_COUNT * SUB_BUCKET_HALF_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(INDEX_COUNT);
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalSum = new LongAdder();
+    private final AtomicLong maxValue = new AtomicLong();
+
+    // Record a single value, negative values are recorded as 0
+    public void record(long value) {
+        long sanitized = Math.max(0, value);
+        counts.incrementAndGet(indexOf(sanitized));
+        totalCount.increment();
+        totalSum.add(sanitized);
+        if (sanitized > maxValue.get()) {
+            maxValue.accumulateAndGet(sanitized, Math::max);
+        }
+    }
+
+    public long getTotalCount() {
+        return totalCount.sum();
+    }
+
+    public long getTotalSum() {
+        return totalSum.sum();
+    }
+
+    public long getMax() {
+        return maxValue.get();
+    }
+
+    public double getMean() {
+        long count = getTotalCount();
+        return count == 0 ? 0 : (double) getTotalSum() / count;
+    }
+
+    // Value at the given percentile (0..100), reported as the highest value equivalent to its bucket
+    // Concurrent recordings may or may not be visible, the result is consistent within one bucket
+    public long getValueAtPercentile(double percentile) {
+        long[] snapshot = snapshotCounts();
+        long total = 0;
+        for (long count : snapshot) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * total));
+        long cumulative = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            cumulative += snapshot[i];
+            if (cumulative >= target) {
+                return Math.min(highestEquivalentValue(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    // Number of recorded values less than or equal to the given value, used for cumulative (Prometheus style) buckets
+    public long getCountAtOrBelow(long value) {
+        int lastIndex = indexOf(Math.max(0, value));
+        long cumulative = 0;
+        for (int i = 0; i <= lastIndex; i++) {
+            cumulative += counts.get(i);
+        }
+        return cumulative;
+    }
+
+    // Forget all recorded values, values recorded concurrently with reset may survive it
+    public void reset() {
+        for (int i = 0; i < INDEX_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.reset();
+        totalSum.reset();
+        maxValue.set(0);
+    }
+
+    private long[] snapshotCounts() {
+        long[] snapshot = new long[INDEX_COUNT];
+        for (int i = 0; i < INDEX_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+        }
+        return snapshot;
+    }
+
+    // Values 0..127 map to themselves, larger values keep their 7 most significant bits
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift);
+        return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF_COUNT + (subBucket - SUB_BUCKET_HALF_COUNT);
+    }
+
+    static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF_COUNT + 1;
+        long subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
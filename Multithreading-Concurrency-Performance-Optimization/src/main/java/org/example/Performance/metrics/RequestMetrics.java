@@ -0,0 +1,61 @@
+package org.example.Performance.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Counters and latency histogram of a single endpoint
+// Everything on the request path is a LongAdder increment or a lock-free histogram record,
+// so concurrent requests never contend on a shared counter
+public class RequestMetrics {
+    // Response status of a finished request
+    public enum Outcome {
+        OK("200"),
+        BAD_REQUEST("400"),
+        SERVER_ERROR("500"),
+        SERVICE_UNAVAILABLE("503");
+
+        private final String status;
+
+        Outcome(String status) {
+            this.status = status;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+    }
+
+    private final LongAdder[] requests = new LongAdder[Outcome.values().length];
+    private final LongAdder inFlight = new LongAdder();
+    // Handler latency in nanoseconds
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    public RequestMetrics() {
+        for (int i = 0; i < requests.length; i++) {
+            requests[i] = new LongAdder();
+        }
+    }
+
+    // Call when the request starts, the returned value has to be passed to end()
+    public long begin() {
+        inFlight.increment();
+        return System.nanoTime();
+    }
+
+    public void end(long startNanos, Outcome outcome) {
+        latency.record(System.nanoTime() - startNanos);
+        requests[outcome.ordinal()].increment();
+        inFlight.decrement();
+    }
+
+    public long getRequestCount(Outcome outcome) {
+        return requests[outcome.ordinal()].sum();
+    }
+
+    public long getInFlight() {
+        return inFlight.sum();
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+}
@@ -0,0 +1,146 @@
+package org.example.Performance.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+
+// Registry of per-endpoint request metrics, gauges (executor queue length, open connections, ...),
+// counters and additional latency histograms (e.g. time waiting for admission)
+// Rendered in the Prometheus text exposition format, so the server can be scraped without a client library
+// Endpoint latencies are exported as a cumulative histogram (aggregatable across servers with histogram_quantile)
+// and as a summary with quantiles computed by the server from the full resolution histogram
+// Every metric name starts with the prefix of the service, "search_" by default
+public class ServerMetrics {
+    public static final String DEFAULT_PREFIX = "search_";
+    // Upper bounds of the exported histogram buckets in nanoseconds, with their labels in seconds
+    private static final long[] BUCKET_BOUNDS = {
+            100_000L, 250_000L, 500_000L, 1_000_000L, 2_500_000L, 5_000_000L,
+            10_000_000L, 25_000_000L, 50_000_000L, 100_000_000L, 250_000_000L, 500_000_000L, 1_000_000_000L,
+            2_500_000_000L, 5_000_000_000L, 10_000_000_000L
+    };
+    private static final String[] BUCKET_LABELS = {
+            "0.0001", "0.00025", "0.0005", "0.001", "0.0025", "0.005",
+            "0.01", "0.025", "0.05", "0.1", "0.25", "0.5", "1", "2.5", "5", "10"
+    };
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    private final Map<String, RequestMetrics> endpoints = new ConcurrentSkipListMap<>();
+    private final Map<String, Gauge> gauges = new ConcurrentSkipListMap<>();
+    private final Map<String, Histogram> histograms = new ConcurrentSkipListMap<>();
+    private final String prefix;
+
+    public ServerMetrics() {
+        this(DEFAULT_PREFIX);
+    }
+
+    public ServerMetrics(String prefix) {
+        this.prefix = prefix;
+    }
+
+    // Metrics of the endpoint with this path, created on first use
+    public RequestMetrics forEndpoint(String path) {
+        return endpoints.computeIfAbsent(path, ignored -> new RequestMetrics());
+    }
+
+    // Register a gauge read on every scrape, the name is prefixed with the service prefix
+    public void registerGauge(String name, String help, LongSupplier value) {
+        gauges.put(name, new Gauge(help, "gauge", value));
+    }
+
+    // Register a monotonically increasing value read on every scrape, name should end with _total
+    public void registerCounter(String name, String help, LongSupplier value) {
+        gauges.put(name, new Gauge(help, "counter", value));
+    }
+
+    // Register a histogram of durations recorded in nanoseconds, exported in seconds, name should end with _seconds
+    public void registerHistogram(String name, String help, LatencyHistogram nanos) {
+        histograms.put(name, new Histogram(help, nanos));
+    }
+
+    public String toPrometheusText() {
+        StringBuilder text = new StringBuilder(4096);
+
+        header(text, "requests_total", "counter", "Requests handled by the endpoint, by response status");
+        for (Map.Entry<String, RequestMetrics> endpoint : endpoints.entrySet()) {
+            for (RequestMetrics.Outcome outcome : RequestMetrics.Outcome.values()) {
+                sample(text, "requests_total", endpointLabel(endpoint.getKey()) + ",status=\"" + outcome.getStatus() + "\"",
+                        Long.toString(endpoint.getValue().getRequestCount(outcome)));
+            }
+        }
+
+        header(text, "requests_in_flight", "gauge", "Requests currently being handled by the endpoint");
+        for (Map.Entry<String, RequestMetrics> endpoint : endpoints.entrySet()) {
+            sample(text, "requests_in_flight", endpointLabel(endpoint.getKey()), Long.toString(endpoint.getValue().getInFlight()));
+        }
+
+        header(text, "request_duration_seconds", "histogram", "Time spent in the endpoint handler");
+        for (Map.Entry<String, RequestMetrics> endpoint : endpoints.entrySet()) {
+            histogram(text, "request_duration_seconds", endpointLabel(endpoint.getKey()), endpoint.getValue().getLatency());
+        }
+
+        header(text, "request_latency_seconds", "summary", "Handler latency quantiles since the server started");
+        for (Map.Entry<String, RequestMetrics> endpoint : endpoints.entrySet()) {
+            String labels = endpointLabel(endpoint.getKey());
+            LatencyHistogram latency = endpoint.getValue().getLatency();
+            for (double quantile : QUANTILES) {
+                sample(text, "request_latency_seconds", labels + ",quantile=\"" + quantile + "\"",
+                        seconds(latency.getValueAtPercentile(quantile * 100)));
+            }
+            sample(text, "request_latency_seconds_sum", labels, seconds(latency.getTotalSum()));
+            sample(text, "request_latency_seconds_count", labels, Long.toString(latency.getTotalCount()));
+        }
+
+        for (Map.Entry<String, Histogram> histogram : histograms.entrySet()) {
+            header(text, histogram.getKey(), "histogram", histogram.getValue().help());
+            histogram(text, histogram.getKey(), null, histogram.getValue().nanos());
+        }
+
+        for (Map.Entry<String, Gauge> gauge : gauges.entrySet()) {
+            header(text, gauge.getKey(), gauge.getValue().type(), gauge.getValue().help());
+            sample(text, gauge.getKey(), null, Long.toString(gauge.getValue().value().getAsLong()));
+        }
+        return text.toString();
+    }
+
+    private void histogram(StringBuilder text, String name, String labels, LatencyHistogram nanos) {
+        String bucketLabels = labels == null ? "" : labels + ",";
+        // Read the total first, so no bucket can report more values than _count and +Inf
+        long count = nanos.getTotalCount();
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            long atOrBelow = Math.min(count, nanos.getCountAtOrBelow(BUCKET_BOUNDS[i]));
+            sample(text, name + "_bucket", bucketLabels + "le=\"" + BUCKET_LABELS[i] + "\"", Long.toString(atOrBelow));
+        }
+        sample(text, name + "_bucket", bucketLabels + "le=\"+Inf\"", Long.toString(count));
+        sample(text, name + "_sum", labels, seconds(nanos.getTotalSum()));
+        sample(text, name + "_count", labels, Long.toString(count));
+    }
+
+    private void header(StringBuilder text, String name, String type, String help) {
+        text.append("# HELP ").append(prefix).append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(prefix).append(name).append(' ').append(type).append('\n');
+    }
+
+    private void sample(StringBuilder text, String name, String labels, String value) {
+        text.append(prefix).append(name);
+        if (labels != null) {
+            text.append('{').append(labels).append('}');
+        }
+        text.append(' ').append(value).append('\n');
+    }
+
+    private static String endpointLabel(String endpoint) {
+        return "endpoint=\"" + endpoint + "\"";
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / NANOS_PER_SECOND);
+    }
+
+    // Gauge or counter read on every scrape
+    private record Gauge(String help, String type, LongSupplier value) {
+    }
+
+    private record Histogram(String help, LatencyHistogram nanos) {
+    }
+}
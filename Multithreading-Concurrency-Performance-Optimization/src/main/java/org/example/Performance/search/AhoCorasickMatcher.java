@@ -0,0 +1,262 @@
+package org.example.Performance.search;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Aho-Corasick automaton counting occurrences of many words in a single pass over the text
+// Counting follows the semantics of SubstringWordCounter: every (possibly overlapping) occurrence is counted
+// Small automata are compiled into a dense transition table, so scanning costs one array lookup per character
+// no matter how many words are searched for
+// The dense table has states * alphabet entries, above MAX_DENSE_TRANSITIONS the trie edges stay in a hash table
+// and the scan follows failure links instead, which is still amortized O(1) per character
+// Instances are immutable after construction and can be shared between threads
+public class AhoCorasickMatcher {
+    private static final int ROOT = 0;
+    private static final int ASCII_SIZE = 128;
+    // 16 MB of transitions, e.g. 60 000 states over 70 symbols
+    static final long MAX_DENSE_TRANSITIONS = 1 << 22;
+
+    // Maps every char to a compact alphabet id, 0 is used for chars which do not appear in any word
+    // ASCII chars are looked up directly, the few other chars of the words are binary searched in a sorted array,
+    // a table for every char would be 256 KB per matcher and matchers are built per request
+    private final int[] asciiAlphabet = new int[ASCII_SIZE];
+    private final char[] otherChars;
+    private final int[] otherSymbols;
+    private final int alphabetSize;
+    // transitions[state * alphabetSize + symbol] = next state, null when the automaton is sparse
+    private final int[] transitions;
+    // Trie edges of the sparse automaton, null when it is dense
+    private final EdgeTable edges;
+    // States in breadth first order, used to propagate hits along failure links
+    private final int[] breadthFirstOrder;
+    private final int[] failure;
+    // Final state of every word, in the order of the words passed to the constructor
+    private final int[] wordStates;
+    private final List<String> words;
+    private final int maxWordLength;
+
+    public AhoCorasickMatcher(List<String> words) {
+        this(words, MAX_DENSE_TRANSITIONS);
+    }
+
+    AhoCorasickMatcher(List<String> words, long maxDenseTransitions) {
+        this.words = List.copyOf(words);
+
+        int symbols = 1;
+        long totalLength = 0;
+        int longest = 0;
+        StringBuilder others = new StringBuilder();
+        for (String word : this.words) {
+            totalLength += word.length();
+            longest = Math.max(longest, word.length());
+            for (int i = 0; i < word.length(); i++) {
+                char c = word.charAt(i);
+                if (c >= ASCII_SIZE) {
+                    others.append(c);
+                } else if (asciiAlphabet[c] == 0) {
+                    asciiAlphabet[c] = symbols++;
+                }
+            }
+        }
+        if (totalLength >= Integer.MAX_VALUE / 2) {
+            throw new IllegalArgumentException("Words are too long: " + totalLength + " characters");
+        }
+        char[] sorted = others.toString().toCharArray();
+        Arrays.sort(sorted);
+        int distinct = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        this.otherChars = Arrays.copyOf(sorted, distinct);
+        this.otherSymbols = new int[distinct];
+        for (int i = 0; i < distinct; i++) {
+            otherSymbols[i] = symbols++;
+        }
+        this.alphabetSize = symbols;
+        this.maxWordLength = longest;
+
+        // Build the trie in a hash table first, its size depends on the number of edges only
+        // Every state but the root has exactly one incoming edge, so the symbol and the parent are kept per state
+        EdgeTable trie = new EdgeTable((int) totalLength);
+        int[] parent = new int[(int) totalLength + 1];
+        int[] edgeSymbol = new int[(int) totalLength + 1];
+        int stateCount = 1;
+        wordStates = new int[this.words.size()];
+        for (int w = 0; w < this.words.size(); w++) {
+            String word = this.words.get(w);
+            int state = ROOT;
+            for (int i = 0; i < word.length(); i++) {
+                int symbol = symbol(word.charAt(i));
+                int next = trie.get(edge(state, symbol));
+                if (next < 0) {
+                    next = stateCount++;
+                    trie.put(edge(state, symbol), next);
+                    parent[next] = state;
+                    edgeSymbol[next] = symbol;
+                }
+                state = next;
+            }
+            wordStates[w] = state;
+        }
+
+        // Children of every state as linked lists, the breadth first traversal visits the trie edges only
+        int[] firstChild = new int[stateCount];
+        int[] nextSibling = new int[stateCount];
+        Arrays.fill(firstChild, -1);
+        for (int state = stateCount - 1; state > ROOT; state--) {
+            nextSibling[state] = firstChild[parent[state]];
+            firstChild[parent[state]] = state;
+        }
+
+        // Breadth first traversal computes failure links
+        failure = new int[stateCount];
+        breadthFirstOrder = new int[stateCount];
+        int tail = 1;
+        for (int head = 0; head < tail; head++) {
+            int state = breadthFirstOrder[head];
+            for (int child = firstChild[state]; child >= 0; child = nextSibling[child]) {
+                failure[child] = state == ROOT ? ROOT : follow(trie, failure[state], edgeSymbol[child]);
+                breadthFirstOrder[tail++] = child;
+            }
+        }
+
+        if ((long) stateCount * alphabetSize > maxDenseTransitions) {
+            transitions = null;
+            edges = trie;
+            return;
+        }
+        // Complete the trie into a full automaton, in breadth first order the failure state is always done already
+        edges = null;
+        transitions = new int[stateCount * alphabetSize];
+        for (int state : breadthFirstOrder) {
+            int row = state * alphabetSize;
+            int fallbackRow = failure[state] * alphabetSize;
+            // Symbol 0 never appears inside a word, so it always leads back to the root
+            for (int symbol = 1; symbol < alphabetSize; symbol++) {
+                int next = trie.get(edge(state, symbol));
+                transitions[row + symbol] = next >= 0 ? next : state == ROOT ? ROOT : transitions[fallbackRow + symbol];
+            }
+        }
+    }
+
+    // Count occurrences of every word, result[i] belongs to the i-th word
+    public long[] countAll(CharSequence text) {
+        return countAll(text, 0, text.length());
+    }
+
+    // Count occurrences of every word which END inside [from, to)
+    // Every occurrence has exactly one end position, so counts of adjacent ranges can simply be added up.
+    // The scan starts maxWordLength - 1 characters before 'from' without counting, which is enough
+    // for the automaton to reach the same state as a scan from the beginning of the text
+    public long[] countAll(CharSequence text, int from, int to) {
+        long[] hits = new long[failure.length];
+        int state = ROOT;
+        if (transitions != null) {
+            for (int i = Math.max(0, from - maxWordLength + 1); i < from; i++) {
+                state = transitions[state * alphabetSize + symbol(text.charAt(i))];
+            }
+            for (int i = from; i < to; i++) {
+                state = transitions[state * alphabetSize + symbol(text.charAt(i))];
+                hits[state]++;
+            }
+        } else {
+            for (int i = Math.max(0, from - maxWordLength + 1); i < from; i++) {
+                state = follow(edges, state, symbol(text.charAt(i)));
+            }
+            for (int i = from; i < to; i++) {
+                state = follow(edges, state, symbol(text.charAt(i)));
+                hits[state]++;
+            }
+        }
+
+        // A visit of a state is also an occurrence of every word on its failure chain
+        // Walking the states in reverse breadth first order pushes hits down to shorter suffixes
+        for (int i = breadthFirstOrder.length - 1; i > 0; i--) {
+            int visited = breadthFirstOrder[i];
+            hits[failure[visited]] += hits[visited];
+        }
+
+        long[] result = new long[words.size()];
+        for (int w = 0; w < words.size(); w++) {
+            // The empty word is not counted, same as in SubstringWordCounter
+            result[w] = words.get(w).isEmpty() ? 0 : hits[wordStates[w]];
+        }
+        return result;
+    }
+
+    // Next state of the automaton: the trie edge of the state or of the longest suffix which has one
+    private int follow(EdgeTable trie, int state, int symbol) {
+        if (symbol == 0) {
+            return ROOT;
+        }
+        while (true) {
+            int next = trie.get(edge(state, symbol));
+            if (next >= 0) {
+                return next;
+            }
+            if (state == ROOT) {
+                return ROOT;
+            }
+            state = failure[state];
+        }
+    }
+
+    private long edge(int state, int symbol) {
+        return (long) state * alphabetSize + symbol;
+    }
+
+    private int symbol(char c) {
+        if (c < ASCII_SIZE) {
+            return asciiAlphabet[c];
+        }
+        int index = Arrays.binarySearch(otherChars, c);
+        return index < 0 ? 0 : otherSymbols[index];
+    }
+
+    public List<String> getWords() {
+        return words;
+    }
+
+    // Open addressing hash table from an edge (state * alphabetSize + symbol) to the next state
+    private static final class EdgeTable {
+        private final long[] keys;
+        private final int[] targets;
+        private final int mask;
+
+        EdgeTable(int maxEdges) {
+            // At most half full, so probe sequences stay short
+            int capacity = Integer.highestOneBit(Math.max(1, maxEdges) * 2 - 1) << 1;
+            keys = new long[capacity];
+            targets = new int[capacity];
+            mask = capacity - 1;
+            Arrays.fill(keys, -1);
+        }
+
+        int get(long key) {
+            for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return targets[slot];
+                }
+                if (keys[slot] < 0) {
+                    return -1;
+                }
+            }
+        }
+
+        void put(long key, int target) {
+            int slot = slot(key);
+            while (keys[slot] >= 0) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            targets[slot] = target;
+        }
+
+        private int slot(long key) {
+            // Fibonacci hashing spreads the consecutive edges of a state over the table
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+        }
+    }
+}
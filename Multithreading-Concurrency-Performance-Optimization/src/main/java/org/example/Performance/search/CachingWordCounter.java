@@ -0,0 +1,53 @@
+package org.example.Performance.search;
+
+import org.example.Performance.cache.BoundedCache;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Decorator answering repeated queries from a bounded cache instead of recounting them
+// Search traffic is skewed towards a few popular words, so even a small cache absorbs most of the scans
+public class CachingWordCounter implements WordCounter {
+    private final WordCounter delegate;
+    private final BoundedCache<String, Long> cache;
+
+    public CachingWordCounter(WordCounter delegate, BoundedCache<String, Long> cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public long count(String word) {
+        return cache.get(word, delegate::count);
+    }
+
+    // Cached words are answered from the cache, the rest is passed to the delegate as one batch
+    @Override
+    public long[] countAll(List<String> words) {
+        long[] counts = new long[words.size()];
+        List<String> missingWords = new ArrayList<>();
+        List<Integer> missingIndexes = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            Long cached = cache.getIfPresent(words.get(i));
+            if (cached != null) {
+                counts[i] = cached;
+            } else {
+                missingWords.add(words.get(i));
+                missingIndexes.add(i);
+            }
+        }
+
+        if (!missingWords.isEmpty()) {
+            long[] missingCounts = delegate.countAll(missingWords);
+            for (int i = 0; i < missingCounts.length; i++) {
+                counts[missingIndexes.get(i)] = missingCounts[i];
+                cache.put(missingWords.get(i), missingCounts[i]);
+            }
+        }
+        return counts;
+    }
+
+    public BoundedCache<String, Long> getCache() {
+        return cache;
+    }
+}
@@ -0,0 +1,167 @@
+package org.example.Performance.search;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Named corpora served by the search server, e.g. /search?corpus=war_and_peace&word=...
+// Every corpus is an AtomicReference to immutable WordCounters (copy-on-write):
+// requests read the reference once and keep using that snapshot, a reload builds new counters in the background
+// and swaps the reference, so in-flight requests are never blocked and never see a half built index
+// Files are watched with a WatchService, events are debounced so a file written in several steps is indexed once
+// For mapped corpora replace files atomically (write a new file and rename it) - truncating a mapped file
+// under a running server makes the old mapping invalid
+public class CorpusRegistry implements Closeable {
+    // Wait for writes to settle before reindexing
+    private static final long RELOAD_DELAY_MILLIS = 500;
+
+    // Loads and indexes a single corpus file
+    @FunctionalInterface
+    public interface CorpusLoader {
+        WordCounters load(Path path) throws IOException;
+    }
+
+    private final CorpusLoader loader;
+    // Filled before the server starts, read only afterwards
+    private final Map<String, Corpus> corpora = new LinkedHashMap<>();
+    private final ScheduledExecutorService reloadExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "corpus-reloader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private WatchService watchService;
+
+    public CorpusRegistry(CorpusLoader loader) {
+        this.loader = loader;
+    }
+
+    // Registry with a single corpus which is never reloaded, e.g. for a text already on the heap
+    public static CorpusRegistry of(String name, WordCounters wordCounters) {
+        CorpusRegistry registry = new CorpusRegistry(path -> wordCounters);
+        registry.corpora.put(name, new Corpus(name, null, wordCounters));
+        return registry;
+    }
+
+    // Load the corpus synchronously and register it under the name
+    public void register(String name, Path path) throws IOException {
+        if (corpora.containsKey(name)) {
+            throw new IllegalArgumentException("Corpus already registered: " + name);
+        }
+        Path absolutePath = path.toAbsolutePath();
+        corpora.put(name, new Corpus(name, absolutePath, loader.load(absolutePath)));
+    }
+
+    // Current counters of the corpus, the first registered corpus when name is null
+    public WordCounters get(String name) {
+        Corpus corpus = name == null ? corpora.values().iterator().next() : corpora.get(name);
+        if (corpus == null) {
+            // Results in 400 Bad Request
+            throw new IllegalArgumentException("Unknown corpus: " + name);
+        }
+        return corpus.current.get();
+    }
+
+    public Set<String> getNames() {
+        return corpora.keySet();
+    }
+
+    // Start watching the files of all registered corpora
+    public void startWatching() throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        Set<Path> directories = new HashSet<>();
+        for (Corpus corpus : corpora.values()) {
+            if (corpus.path != null && directories.add(corpus.path.getParent())) {
+                corpus.path.getParent().register(watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+        }
+        Thread watcher = new Thread(this::watch, "corpus-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    // Schedule a background reload, requests in the meantime are served by the current counters
+    public void reload(String name) {
+        Corpus corpus = corpora.get(name);
+        if (corpus == null || corpus.path == null) {
+            throw new IllegalArgumentException("Corpus can not be reloaded: " + name);
+        }
+        // Coalesce bursts of events into one reload
+        if (corpus.reloadPending.compareAndSet(false, true)) {
+            reloadExecutor.schedule(() -> doReload(corpus), RELOAD_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void doReload(Corpus corpus) {
+        corpus.reloadPending.set(false);
+        long start = System.currentTimeMillis();
+        try {
+            WordCounters reloaded = loader.load(corpus.path);
+            // Atomic swap - new requests see the new index, running ones finish with the old one
+            corpus.current.set(reloaded);
+            System.out.println("Reloaded corpus " + corpus.name + " in " + (System.currentTimeMillis() - start) + " ms");
+        } catch (IOException | RuntimeException e) {
+            // Keep serving the previous version
+            System.out.println("Failed to reload corpus " + corpus.name + ": " + e);
+        }
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Path directory = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        continue;
+                    }
+                    Path changed = directory.resolve((Path) event.context());
+                    for (Corpus corpus : corpora.values()) {
+                        if (changed.equals(corpus.path)) {
+                            reload(corpus.name);
+                        }
+                    }
+                }
+                key.reset();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Registry closed
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reloadExecutor.shutdownNow();
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    private static class Corpus {
+        private final String name;
+        private final Path path;
+        private final AtomicReference<WordCounters> current;
+        private final AtomicBoolean reloadPending = new AtomicBoolean(false);
+
+        private Corpus(String name, Path path, WordCounters wordCounters) {
+            this.name = name;
+            this.path = path;
+            this.current = new AtomicReference<>(wordCounters);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package org.example.Performance.search;
+
+// How the search server keeps the corpus in memory
+// HEAP - the file is decoded into a String, all search modes are available
+// MAPPED - the file is memory mapped and searched as bytes, only the substring modes are available
+public enum CorpusStorage {
+    HEAP,
+    MAPPED;
+
+    // Parse storage from a command line value, e.g. "mapped"
+    public static CorpusStorage fromString(String value) {
+        return valueOf(value.trim().toUpperCase().replace('-', '_'));
+    }
+}
@@ -0,0 +1,149 @@
+package org.example.Performance.search;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Corpus kept as raw bytes in memory mapped segments instead of a String on the heap
+// Mapping is almost instant and the pages are loaded lazily by the OS and shared with the page cache,
+// so multi-GB files can be served with a small heap and no UTF-16 copy of the text
+// A single MappedByteBuffer is limited to 2GB, so the file is mapped as a sequence of 1GB segments
+public class MappedCorpus {
+    private static final int SEGMENT_BITS = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+    private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    private final Path path;
+    private final MappedByteBuffer[] segments;
+    private final long size;
+
+    private MappedCorpus(Path path, MappedByteBuffer[] segments, long size) {
+        this.path = path;
+        this.segments = segments;
+        this.size = size;
+    }
+
+    // Map the whole file read only, the mapping stays valid after the channel is closed
+    public static MappedCorpus open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int segmentCount = (int) ((size + SEGMENT_SIZE - 1) >>> SEGMENT_BITS);
+            MappedByteBuffer[] segments = new MappedByteBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                long position = (long) i << SEGMENT_BITS;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(SEGMENT_SIZE, size - position));
+            }
+            return new MappedCorpus(path, segments, size);
+        }
+    }
+
+    // Byte at any position of the file
+    public byte byteAt(long position) {
+        return segments[(int) (position >>> SEGMENT_BITS)].get((int) (position & SEGMENT_MASK));
+    }
+
+    // Count occurrences of the pattern starting in [from, to), the pattern may extend past 'to'
+    public long count(byte[] pattern, long from, long to) {
+        if (pattern.length == 0) {
+            return 0;
+        }
+        long lastStart = Math.min(to, size - pattern.length + 1);
+        long count = 0;
+        long position = from;
+        while (position < lastStart) {
+            int segmentIndex = (int) (position >>> SEGMENT_BITS);
+            MappedByteBuffer segment = segments[segmentIndex];
+            long segmentStart = (long) segmentIndex << SEGMENT_BITS;
+            // Fast path - matches which fit completely into this segment are checked with int indexes
+            long fastEnd = Math.min(lastStart, segmentStart + segment.limit() - pattern.length + 1);
+            if (position < fastEnd) {
+                count += countInSegment(segment, pattern, (int) (position - segmentStart), (int) (fastEnd - segmentStart));
+                position = fastEnd;
+            }
+            // Slow path - the last pattern.length - 1 starts of a segment cross into the next one
+            long segmentEnd = Math.min(lastStart, segmentStart + segment.limit());
+            for (; position < segmentEnd; position++) {
+                if (matchesAt(pattern, position)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static long countInSegment(MappedByteBuffer segment, byte[] pattern, int from, int to) {
+        byte first = pattern[0];
+        long count = 0;
+        for (int i = from; i < to; i++) {
+            if (segment.get(i) != first) {
+                continue;
+            }
+            int matched = 1;
+            while (matched < pattern.length && segment.get(i + matched) == pattern[matched]) {
+                matched++;
+            }
+            if (matched == pattern.length) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private boolean matchesAt(byte[] pattern, long position) {
+        for (int i = 0; i < pattern.length; i++) {
+            if (byteAt(position + i) != pattern[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // View of [offset, offset + length) as chars 0..255, so char based matchers can run directly on the bytes
+    public CharSequence window(long offset, int length) {
+        return new ByteWindow(offset, length);
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    private class ByteWindow implements CharSequence {
+        private final long offset;
+        private final int length;
+
+        private ByteWindow(long offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (byteAt(offset + index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new ByteWindow(offset + start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder(length);
+            for (int i = 0; i < length; i++) {
+                builder.append(charAt(i));
+            }
+            return builder.toString();
+        }
+    }
+}
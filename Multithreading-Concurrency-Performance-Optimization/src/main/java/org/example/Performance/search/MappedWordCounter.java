@@ -0,0 +1,122 @@
+package org.example.Performance.search;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Substring counter working on the raw bytes of a MappedCorpus
+// Words are encoded to UTF-8 and searched as byte sequences - UTF-8 is self-synchronizing,
+// so for a UTF-8 corpus the results are the same as SubstringWordCounter on the decoded text
+// Like ParallelSubstringWordCounter the file is split into chunks scanned in a ForkJoinPool;
+// with parallel = false the whole file is scanned by the calling thread
+public class MappedWordCounter implements WordCounter {
+    private final MappedCorpus corpus;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+    private final boolean parallel;
+
+    public MappedWordCounter(MappedCorpus corpus, ForkJoinPool pool, int chunkSize, boolean parallel) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        this.corpus = corpus;
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+        this.parallel = parallel;
+    }
+
+    @Override
+    public long count(String word) {
+        byte[] pattern = word.getBytes(StandardCharsets.UTF_8);
+        if (!parallel) {
+            return corpus.count(pattern, 0, corpus.size());
+        }
+        return pool.invoke(new CountTask(pattern, 0, corpus.size()));
+    }
+
+    // The batch is compiled into one Aho-Corasick matcher over byte values,
+    // every word is turned into a string of chars 0..255 holding its UTF-8 bytes
+    @Override
+    public long[] countAll(List<String> words) {
+        if (words.size() == 1) {
+            return new long[]{count(words.get(0))};
+        }
+        List<String> byteWords = new ArrayList<>(words.size());
+        int maxLength = 0;
+        for (String word : words) {
+            String byteWord = new String(word.getBytes(StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1);
+            byteWords.add(byteWord);
+            maxLength = Math.max(maxLength, byteWord.length());
+        }
+        CountAllTask task = new CountAllTask(new AhoCorasickMatcher(byteWords), maxLength, 0, corpus.size());
+        return parallel ? pool.invoke(task) : task.compute();
+    }
+
+    // Counts occurrences of the pattern starting in [from, to)
+    private class CountTask extends RecursiveTask<Long> {
+        private final byte[] pattern;
+        private final long from;
+        private final long to;
+
+        private CountTask(byte[] pattern, long from, long to) {
+            this.pattern = pattern;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from <= chunkSize) {
+                return corpus.count(pattern, from, to);
+            }
+            long middle = from + (to - from) / 2;
+            CountTask left = new CountTask(pattern, from, middle);
+            CountTask right = new CountTask(pattern, middle, to);
+            left.fork();
+            return right.compute() + left.join();
+        }
+    }
+
+    // Counts occurrences of all words ending in [from, to)
+    // The matcher sees a window starting maxLength - 1 bytes earlier, so it can warm up before 'from'
+    private class CountAllTask extends RecursiveTask<long[]> {
+        private final AhoCorasickMatcher matcher;
+        private final int maxLength;
+        private final long from;
+        private final long to;
+
+        private CountAllTask(AhoCorasickMatcher matcher, int maxLength, long from, long to) {
+            this.matcher = matcher;
+            this.maxLength = maxLength;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from <= chunkSize) {
+                long windowStart = Math.max(0, from - maxLength + 1);
+                CharSequence window = corpus.window(windowStart, (int) (to - windowStart));
+                return matcher.countAll(window, (int) (from - windowStart), window.length());
+            }
+            long middle = from + (to - from) / 2;
+            CountAllTask left = new CountAllTask(matcher, maxLength, from, middle);
+            CountAllTask right = new CountAllTask(matcher, maxLength, middle, to);
+            if (!parallel) {
+                return sum(left.compute(), right.compute());
+            }
+            left.fork();
+            long[] counts = right.compute();
+            return sum(counts, left.join());
+        }
+
+        private long[] sum(long[] counts, long[] other) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other[i];
+            }
+            return counts;
+        }
+    }
+}
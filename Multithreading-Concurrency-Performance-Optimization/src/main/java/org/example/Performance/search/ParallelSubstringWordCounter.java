@@ -0,0 +1,117 @@
+package org.example.Performance.search;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Same results as SubstringWordCounter, but a single query is spread over all cores
+// The text is split recursively into chunks of chunkSize characters which are scanned in a ForkJoinPool
+// A chunk owns the occurrences STARTING inside it and may read up to word.length() - 1 characters
+// past its end, so a match crossing a chunk boundary is counted exactly once, by the chunk where it starts
+// Chunks should be small enough to stay in L2 cache while the word is searched
+public class ParallelSubstringWordCounter implements WordCounter {
+    // 64K chars = 128KB of UTF-16 text
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    private final String text;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    public ParallelSubstringWordCounter(String text) {
+        this(text, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    public ParallelSubstringWordCounter(String text, ForkJoinPool pool, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        this.text = text;
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public long count(String word) {
+        if (word.isEmpty()) {
+            return 0;
+        }
+        return pool.invoke(new CountTask(word, 0, text.length()));
+    }
+
+    // Every chunk runs one Aho-Corasick pass for the whole batch, the per-chunk results are summed up
+    @Override
+    public long[] countAll(List<String> words) {
+        if (words.size() == 1) {
+            return new long[]{count(words.get(0))};
+        }
+        AhoCorasickMatcher matcher = new AhoCorasickMatcher(words);
+        return pool.invoke(new CountAllTask(matcher, 0, text.length()));
+    }
+
+    // Counts occurrences of one word starting in [from, to)
+    private class CountTask extends RecursiveTask<Long> {
+        private final String word;
+        private final int from;
+        private final int to;
+
+        private CountTask(String word, int from, int to) {
+            this.word = word;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from <= chunkSize) {
+                return countInChunk();
+            }
+            int middle = from + (to - from) / 2;
+            CountTask left = new CountTask(word, from, middle);
+            CountTask right = new CountTask(word, middle, to);
+            left.fork();
+            return right.compute() + left.join();
+        }
+
+        private long countInChunk() {
+            // The search range is extended so occurrences starting near the end of the chunk still fit
+            int end = Math.min(text.length(), to + word.length() - 1);
+            long count = 0;
+            int index = text.indexOf(word, from, end);
+            while (index >= 0 && index < to) {
+                count++;
+                index = text.indexOf(word, index + 1, end);
+            }
+            return count;
+        }
+    }
+
+    // Counts occurrences of all words ending in [from, to) - see AhoCorasickMatcher.countAll
+    private class CountAllTask extends RecursiveTask<long[]> {
+        private final AhoCorasickMatcher matcher;
+        private final int from;
+        private final int to;
+
+        private CountAllTask(AhoCorasickMatcher matcher, int from, int to) {
+            this.matcher = matcher;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from <= chunkSize) {
+                return matcher.countAll(text, from, to);
+            }
+            int middle = from + (to - from) / 2;
+            CountAllTask left = new CountAllTask(matcher, from, middle);
+            CountAllTask right = new CountAllTask(matcher, middle, to);
+            left.fork();
+            long[] counts = right.compute();
+            long[] leftCounts = left.join();
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += leftCounts[i];
+            }
+            return counts;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.example.Performance.search;
+
+// Modes in which the search server can answer /search requests
+// INDEX - whole word lookup in an index built once at startup, O(1) per request
+// EXACT_SUBSTRING - full scan of the text with String.indexOf, O(corpus size) per request
+// PARALLEL_SUBSTRING - same results as EXACT_SUBSTRING, the scan is split into chunks processed on all cores
+// Both modes are kept so results and throughput can be compared side by side
+public enum SearchMode {
+    INDEX,
+    EXACT_SUBSTRING,
+    PARALLEL_SUBSTRING;
+
+    // values() returns a new array on every call
+    private static final SearchMode[] VALUES = values();
+
+    // Parse mode from a request or command line value, e.g. "index" or "exact_substring"
+    public static SearchMode fromString(String value) {
+        return valueOf(value.trim().toUpperCase().replace('-', '_'));
+    }
+
+    // Parse mode from value.substring(start, end) without creating the substring
+    // Case and '-' / '_' are ignored the same way as in fromString(String)
+    public static SearchMode fromString(String value, int start, int end) {
+        for (SearchMode mode : VALUES) {
+            String name = mode.name();
+            if (name.length() != end - start) {
+                continue;
+            }
+            int i = 0;
+            while (i < name.length() && matches(name.charAt(i), value.charAt(start + i))) {
+                i++;
+            }
+            if (i == name.length()) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Unknown search mode: " + value.substring(start, end));
+    }
+
+    private static boolean matches(char expected, char actual) {
+        return expected == Character.toUpperCase(actual) || (expected == '_' && actual == '-');
+    }
+}
@@ -0,0 +1,49 @@
+package org.example.Performance.search;
+
+import java.util.List;
+
+// Counts every (possibly overlapping) occurrence of the word as a substring of the text
+// This is the original behaviour of the server - each request scans the whole corpus
+public class SubstringWordCounter implements WordCounter {
+    private final String text;
+
+    public SubstringWordCounter(String text) {
+        this.text = text;
+    }
+
+    @Override
+    public long count(String word) {
+        return countWordOccurrences(word, text);
+    }
+
+    // Batch queries are answered with one pass of an Aho-Corasick automaton instead of one scan per word
+    @Override
+    public long[] countAll(List<String> words) {
+        if (words.size() == 1) {
+            return new long[]{count(words.get(0))};
+        }
+        return new AhoCorasickMatcher(words).countAll(text);
+    }
+
+    // Method to count occurrences of a word in the text
+    public static long countWordOccurrences(String word, String text) {
+        // String.indexOf("") matches at every index, even past the end of the text, so the loop would never end
+        if (word.isEmpty()) {
+            return 0;
+        }
+
+        // Initialize count and index
+        long count = 0;
+        int index = 0;
+
+        // Loop to find all occurrences of the word
+        while (index >= 0) {
+            index = text.indexOf(word, index);
+            if (index >= 0) {
+                count++;
+                index++;
+            }
+        }
+        return count;
+    }
+}
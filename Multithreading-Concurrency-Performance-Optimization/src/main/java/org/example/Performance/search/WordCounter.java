@@ -0,0 +1,21 @@
+package org.example.Performance.search;
+
+import java.util.List;
+
+// Strategy used by the search server to answer "how many times does this word occur" queries
+// Implementations must be thread safe because a single instance is shared by all request threads
+public interface WordCounter {
+
+    // Count occurrences of the given word in the underlying corpus
+    long count(String word);
+
+    // Count occurrences of many words at once, result[i] belongs to the i-th word
+    // Implementations which scan the text override it to answer the whole batch in a single pass
+    default long[] countAll(List<String> words) {
+        long[] counts = new long[words.size()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = count(words.get(i));
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,78 @@
+package org.example.Performance.search;
+
+import org.example.Performance.cache.BoundedCache;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.UnaryOperator;
+
+// Word counters of the server, one per SearchMode, shared by the single word and the batch endpoints
+// Counters are configured before they are published (e.g. in a CorpusRegistry) and only read afterwards
+public class WordCounters {
+    private final Map<SearchMode, WordCounter> counters = new EnumMap<>(SearchMode.class);
+    private final SearchMode defaultMode;
+    private BoundedCache<String, Long> cache;
+
+    public WordCounters(Map<SearchMode, WordCounter> counters, SearchMode defaultMode) {
+        this.counters.putAll(counters);
+        this.defaultMode = defaultMode;
+        if (!counters.containsKey(defaultMode)) {
+            throw new IllegalArgumentException("Search mode " + defaultMode + " is not available, use one of " + counters.keySet());
+        }
+    }
+
+    // Build counters for every mode - the index is built once here
+    public static WordCounters forText(String text, SearchMode defaultMode) {
+        return forText(text, defaultMode, ParallelSubstringWordCounter.DEFAULT_CHUNK_SIZE);
+    }
+
+    public static WordCounters forText(String text, SearchMode defaultMode, int chunkSize) {
+        return new WordCounters(Map.of(
+                SearchMode.INDEX, WordIndex.build(text),
+                SearchMode.EXACT_SUBSTRING, new SubstringWordCounter(text),
+                SearchMode.PARALLEL_SUBSTRING, new ParallelSubstringWordCounter(text, ForkJoinPool.commonPool(), chunkSize)),
+                defaultMode);
+    }
+
+    // Counters over a memory mapped corpus - there is no index, since it would need the decoded text on the heap
+    public static WordCounters forMappedCorpus(MappedCorpus corpus, SearchMode defaultMode, int chunkSize) {
+        return new WordCounters(Map.of(
+                SearchMode.EXACT_SUBSTRING, new MappedWordCounter(corpus, ForkJoinPool.commonPool(), chunkSize, false),
+                SearchMode.PARALLEL_SUBSTRING, new MappedWordCounter(corpus, ForkJoinPool.commonPool(), chunkSize, true)),
+                defaultMode);
+    }
+
+    // Replace the counter of the mode with a decorated one, e.g. wrapped in a cache
+    public void decorate(SearchMode mode, UnaryOperator<WordCounter> decorator) {
+        counters.computeIfPresent(mode, (key, counter) -> decorator.apply(counter));
+    }
+
+    // Put the cache in front of the substring modes
+    // The index is not cached - a lookup in it is already as cheap as a cache hit
+    // Both substring modes return the same counts, so they share one cache
+    public void enableCache(BoundedCache<String, Long> cache) {
+        this.cache = cache;
+        decorate(SearchMode.EXACT_SUBSTRING, counter -> new CachingWordCounter(counter, cache));
+        decorate(SearchMode.PARALLEL_SUBSTRING, counter -> new CachingWordCounter(counter, cache));
+    }
+
+    // Cache of the substring modes or null when caching is disabled
+    public BoundedCache<String, Long> getCache() {
+        return cache;
+    }
+
+    // Counter for the mode given in the request or the default one when mode is null
+    public WordCounter forMode(SearchMode mode) {
+        WordCounter counter = counters.get(mode == null ? defaultMode : mode);
+        if (counter == null) {
+            // Results in 400 Bad Request
+            throw new IllegalArgumentException("Search mode " + mode + " is not available");
+        }
+        return counter;
+    }
+
+    public SearchMode getDefaultMode() {
+        return defaultMode;
+    }
+}
@@ -0,0 +1,105 @@
+package org.example.Performance.search;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+// Inverted index of the corpus built once at startup
+// The text is tokenized into words (maximal runs of letters and digits, case sensitive)
+// and every word is mapped to its number of occurrences and optionally to their character offsets
+// After construction the index is immutable, so it can be read by any number of threads without locking
+public class WordIndex implements WordCounter {
+    private static final int[] NO_POSITIONS = new int[0];
+
+    private final Map<String, Long> counts;
+    private final Map<String, int[]> positions;
+
+    private WordIndex(Map<String, Long> counts, Map<String, int[]> positions) {
+        this.counts = counts;
+        this.positions = positions;
+    }
+
+    // Build an index with counts only
+    public static WordIndex build(String text) {
+        return build(text, false);
+    }
+
+    // Build an index, optionally remembering the offset of every occurrence of every word
+    public static WordIndex build(String text, boolean withPositions) {
+        Map<String, Long> counts = new HashMap<>();
+        Map<String, PositionList> positionLists = withPositions ? new HashMap<>() : null;
+
+        int length = text.length();
+        int index = 0;
+        while (index < length) {
+            // Skip separators
+            while (index < length && !isWordCharacter(text.charAt(index))) {
+                index++;
+            }
+            int start = index;
+            while (index < length && isWordCharacter(text.charAt(index))) {
+                index++;
+            }
+            if (start == index) {
+                break;
+            }
+
+            String word = text.substring(start, index);
+            counts.merge(word, 1L, Long::sum);
+            if (withPositions) {
+                positionLists.computeIfAbsent(word, key -> new PositionList()).add(start);
+            }
+        }
+
+        Map<String, int[]> positions = Collections.emptyMap();
+        if (withPositions) {
+            positions = new HashMap<>(positionLists.size() * 2);
+            for (Map.Entry<String, PositionList> entry : positionLists.entrySet()) {
+                positions.put(entry.getKey(), entry.getValue().toArray());
+            }
+        }
+        return new WordIndex(counts, positions);
+    }
+
+    @Override
+    public long count(String word) {
+        Long count = counts.get(word);
+        return count == null ? 0 : count;
+    }
+
+    // Character offsets of every occurrence of the word, empty if the index was built without positions
+    public int[] positions(String word) {
+        int[] wordPositions = positions.get(word);
+        return wordPositions == null ? NO_POSITIONS : wordPositions.clone();
+    }
+
+    // Number of distinct words in the corpus
+    public int size() {
+        return counts.size();
+    }
+
+    private static boolean isWordCharacter(char character) {
+        return Character.isLetterOrDigit(character);
+    }
+
+    // Growable list of primitive ints to avoid boxing every offset during indexing
+    private static class PositionList {
+        private int[] values = new int[4];
+        private int size = 0;
+
+        void add(int value) {
+            if (size == values.length) {
+                int[] grown = new int[size * 2];
+                System.arraycopy(values, 0, grown, 0, size);
+                values = grown;
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            int[] result = new int[size];
+            System.arraycopy(values, 0, result, 0, size);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package org.example.Performance.server;
+
+import org.example.Performance.metrics.LatencyHistogram;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Limits the work in progress of a server to a budget of units (e.g. megapixels being processed)
+// A request acquires units for its size before it starts, when the budget is used up it waits:
+// at most maxWaiting requests wait at once and each at most maxWait, everything beyond is rejected with 503
+// instead of queueing without bound - latency stays bounded and the client can retry elsewhere
+// A single request never takes more than maxUnitsPerRequest (half the budget by default),
+// so one huge request cannot take the whole budget and small ones still get in next to it
+// The semaphore is not fair: small requests can pass a waiting large one, the wait timeout bounds how long the large one waits
+public class AdmissionController {
+    private final Semaphore units;
+    private final int capacity;
+    private final int maxUnitsPerRequest;
+    private final int maxWaiting;
+    private final long maxWaitNanos;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    // Time spent waiting for admission in nanoseconds, rejected requests included
+    private final LatencyHistogram waitTime = new LatencyHistogram();
+
+    public AdmissionController(int capacity, int maxWaiting, long maxWait, TimeUnit unit) {
+        this(capacity, Math.max(1, capacity / 2), maxWaiting, maxWait, unit);
+    }
+
+    public AdmissionController(int capacity, int maxUnitsPerRequest, int maxWaiting, long maxWait, TimeUnit unit) {
+        if (capacity < 1 || maxUnitsPerRequest < 1 || maxUnitsPerRequest > capacity || maxWaiting < 0 || maxWait < 0) {
+            throw new IllegalArgumentException("Invalid admission limits");
+        }
+        this.units = new Semaphore(capacity);
+        this.capacity = capacity;
+        this.maxUnitsPerRequest = maxUnitsPerRequest;
+        this.maxWaiting = maxWaiting;
+        this.maxWaitNanos = unit.toNanos(maxWait);
+    }
+
+    // Wait until the units are available, close the returned permit when the work is done
+    // Throws ServiceUnavailableException when the wait queue is full or the wait times out
+    public Permit acquire(long requestedUnits) {
+        int needed = (int) Math.max(1, Math.min(requestedUnits, maxUnitsPerRequest));
+        long start = System.nanoTime();
+        if (units.tryAcquire(needed)) {
+            waitTime.record(0);
+            admitted.increment();
+            return new Permit(needed);
+        }
+        if (waiting.incrementAndGet() > maxWaiting) {
+            waiting.decrementAndGet();
+            reject(start);
+            throw new ServiceUnavailableException("Too many requests waiting");
+        }
+        try {
+            if (!units.tryAcquire(needed, maxWaitNanos, TimeUnit.NANOSECONDS)) {
+                reject(start);
+                throw new ServiceUnavailableException("Timed out waiting for admission");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            reject(start);
+            throw new ServiceUnavailableException("Interrupted while waiting for admission");
+        } finally {
+            waiting.decrementAndGet();
+        }
+        waitTime.record(System.nanoTime() - start);
+        admitted.increment();
+        return new Permit(needed);
+    }
+
+    private void reject(long start) {
+        waitTime.record(System.nanoTime() - start);
+        rejected.increment();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getUnitsInUse() {
+        return capacity - units.availablePermits();
+    }
+
+    public int getWaiting() {
+        return waiting.get();
+    }
+
+    public long getAdmittedCount() {
+        return admitted.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public LatencyHistogram getWaitTime() {
+        return waitTime;
+    }
+
+    // Units held by an admitted request
+    public class Permit implements AutoCloseable {
+        private final int held;
+        private boolean released = false;
+
+        private Permit(int held) {
+            this.held = held;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                units.release(held);
+            }
+        }
+    }
+}
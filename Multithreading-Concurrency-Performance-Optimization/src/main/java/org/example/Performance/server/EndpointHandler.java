@@ -0,0 +1,111 @@
+package org.example.Performance.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+// Base class for server endpoints which can be served by every ServerEngine
+// The endpoint logic lives in respond() and does not depend on HttpExchange,
+// so the same handler instance can be registered in com.sun HttpServer or in the NIO engine
+// The response body is written into a reused ResponseBuffer instead of a new byte[] per request
+public abstract class EndpointHandler implements HttpHandler {
+    private static final byte[] NO_BODY = new byte[0];
+    // Platform threads of the pool serve thousands of requests, so each keeps its own buffer
+    // Virtual threads live for a single request, a thread local would be a new buffer every time anyway
+    private static final ThreadLocal<ResponseBuffer> RESPONSE_BUFFERS = ThreadLocal.withInitial(ResponseBuffer::new);
+
+    // Content-Type of every response body
+    public static final String CONTENT_TYPE = "text/plain; charset=utf-8";
+    // Larger request bodies are answered with 413 by every engine instead of being buffered
+    public static final int MAX_BODY_SIZE = 16 * 1024 * 1024;
+
+    // Write the response body for the request into the buffer
+    // Throw IllegalArgumentException to answer with 400 Bad Request,
+    // ServiceUnavailableException to answer with 503 Service Unavailable, any other exception answers with 500
+    // The body is at most MAX_BODY_SIZE bytes
+    public abstract void respond(String method, String query, byte[] body, ResponseBuffer response) throws IOException;
+
+    // Content-Type of the responses of this endpoint, engines may read it once when the endpoint is added
+    public String getContentType() {
+        return CONTENT_TYPE;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        // GET requests have no body, reading the empty stream would still allocate
+        String method = exchange.getRequestMethod();
+        byte[] body = NO_BODY;
+        if (!method.equals("GET") && !method.equals("HEAD")) {
+            // A declared length over the limit is rejected before reading, a body without one is read up to the limit
+            // The stream is left open, closing it drains the rest of the body before the 413 is sent
+            if (isTooLarge(exchange.getRequestHeaders().getFirst("Content-Length"))) {
+                sendTooLarge(exchange);
+                return;
+            }
+            InputStream inputStream = exchange.getRequestBody();
+            body = inputStream.readNBytes(MAX_BODY_SIZE + 1);
+            if (body.length > MAX_BODY_SIZE) {
+                sendTooLarge(exchange);
+                return;
+            }
+        }
+
+        ResponseBuffer response = Thread.currentThread().isVirtual() ? new ResponseBuffer() : RESPONSE_BUFFERS.get();
+        response.reset();
+        try {
+            respond(method, exchange.getRequestURI().getQuery(), body, response);
+        } catch (IllegalArgumentException e) {
+            // Malformed request - no response body
+            exchange.sendResponseHeaders(400, -1);
+            exchange.close();
+            return;
+        } catch (ServiceUnavailableException e) {
+            // Overloaded - the client should retry later
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+            return;
+        } catch (IOException | RuntimeException e) {
+            // Bug or failure in the endpoint - answer anyway, otherwise HttpServer drops the exchange without a response
+            e.printStackTrace();
+            exchange.sendResponseHeaders(500, -1);
+            exchange.close();
+            return;
+        }
+
+        // Send the response
+        exchange.getResponseHeaders().set("Content-Type", getContentType());
+        if (method.equals("HEAD")) {
+            // HEAD responses carry the headers only
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+            return;
+        }
+        exchange.sendResponseHeaders(200, response.length());
+        OutputStream outputStream = exchange.getResponseBody();
+        outputStream.write(response.array(), 0, response.length());
+        outputStream.close();
+    }
+
+    // Same as the NIO engine: the rest of the body is not read, so the connection cannot be reused
+    private static void sendTooLarge(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Connection", "close");
+        exchange.sendResponseHeaders(413, -1);
+        exchange.close();
+    }
+
+    private static boolean isTooLarge(String contentLength) {
+        if (contentLength == null) {
+            return false;
+        }
+        try {
+            return Long.parseLong(contentLength.trim()) > MAX_BODY_SIZE;
+        } catch (NumberFormatException e) {
+            // HttpServer rejects a malformed length itself
+            return false;
+        }
+    }
+}
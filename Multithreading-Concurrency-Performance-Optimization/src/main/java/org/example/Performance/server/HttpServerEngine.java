@@ -0,0 +1,104 @@
+package org.example.Performance.server;
+
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.example.Performance.metrics.ServerMetrics;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+
+// Engine based on com.sun.net.httpserver.HttpServer
+// The executor decides how requests are run:
+// a fixed pool of platform threads or a new virtual thread per request
+public class HttpServerEngine implements ServerEngine {
+    private final ServerConfig config;
+    private final Map<String, EndpointHandler> endpoints = new LinkedHashMap<>();
+    private HttpServer server;
+    private volatile ExecutorService executor;
+
+    public HttpServerEngine(ServerConfig config) {
+        this.config = config;
+    }
+
+    @Override
+    public void addEndpoint(String path, EndpointHandler handler) {
+        endpoints.put(path, handler);
+    }
+
+    @Override
+    public void start() throws IOException {
+        tuneKeepAlive();
+        server = HttpServer.create(new InetSocketAddress(config.getPort()), config.getBacklog());
+        for (Map.Entry<String, EndpointHandler> endpoint : endpoints.entrySet()) {
+            server.createContext(endpoint.getKey(), exactPath(endpoint.getKey(), endpoint.getValue()));
+        }
+        if (!endpoints.containsKey("/")) {
+            // Paths without any context get the same empty 404 instead of HttpServer's HTML page
+            server.createContext("/", exactPath("/", null));
+        }
+        executor = createExecutor();
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    @Override
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+        }
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Override
+    public void registerMetrics(ServerMetrics metrics) {
+        // Virtual threads are started for every request, there is no queue in front of them
+        if (config.getEngineType() != ServerEngineType.FIXED_POOL) {
+            return;
+        }
+        metrics.registerGauge("executor_queue_length", "Requests waiting for a pool thread",
+                () -> executor instanceof ThreadPoolExecutor pool ? pool.getQueue().size() : 0);
+        metrics.registerGauge("executor_active_threads", "Pool threads currently handling a request",
+                () -> executor instanceof ThreadPoolExecutor pool ? pool.getActiveCount() : 0);
+        metrics.registerGauge("executor_pool_size", "Threads in the request pool", config::getThreads);
+    }
+
+    // HttpServer contexts match by prefix, /search would also get /search/xyz
+    // Other paths are answered with 404 like on the NIO engine, a null handler answers every path with 404
+    private static HttpHandler exactPath(String path, EndpointHandler handler) {
+        return exchange -> {
+            if (handler == null || !exchange.getRequestURI().getRawPath().equals(path)) {
+                exchange.sendResponseHeaders(404, -1);
+                exchange.close();
+                return;
+            }
+            handler.handle(exchange);
+        };
+    }
+
+    // HttpServer reads its tuning from system properties once, when the first server is created
+    // Values given on the command line with -D are kept
+    private static void tuneKeepAlive() {
+        // Without TCP_NODELAY the header and body writes of a keep-alive response hit Nagle's algorithm
+        // together with the client's delayed ACK, which adds ~40 ms to every request
+        System.setProperty("sun.net.httpserver.nodelay", System.getProperty("sun.net.httpserver.nodelay", "true"));
+        // Keep more idle keep-alive connections than the default 200, load tests open one per virtual user
+        System.setProperty("sun.net.httpserver.maxIdleConnections",
+                System.getProperty("sun.net.httpserver.maxIdleConnections", "1024"));
+    }
+
+    private ExecutorService createExecutor() {
+        if (config.getEngineType() == ServerEngineType.VIRTUAL_THREADS) {
+            // Blocking on socket I/O unmounts the virtual thread, so no pool size is needed
+            return Executors.newVirtualThreadPerTaskExecutor();
+        }
+        // It allows to handle multiple requests concurrently with a fixed number of threads
+        return Executors.newFixedThreadPool(config.getThreads());
+    }
+}
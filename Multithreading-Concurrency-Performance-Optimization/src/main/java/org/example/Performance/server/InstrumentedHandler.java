@@ -0,0 +1,40 @@
+package org.example.Performance.server;
+
+import org.example.Performance.metrics.RequestMetrics;
+
+import java.io.IOException;
+
+// Decorator recording throughput, latency and in-flight requests of another endpoint
+// Works for every engine because it only wraps respond(), the measured latency is the time spent in the handler
+public class InstrumentedHandler extends EndpointHandler {
+    private final EndpointHandler delegate;
+    private final RequestMetrics metrics;
+
+    public InstrumentedHandler(EndpointHandler delegate, RequestMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void respond(String method, String query, byte[] body, ResponseBuffer response) throws IOException {
+        long start = metrics.begin();
+        RequestMetrics.Outcome outcome = RequestMetrics.Outcome.SERVER_ERROR;
+        try {
+            delegate.respond(method, query, body, response);
+            outcome = RequestMetrics.Outcome.OK;
+        } catch (IllegalArgumentException e) {
+            outcome = RequestMetrics.Outcome.BAD_REQUEST;
+            throw e;
+        } catch (ServiceUnavailableException e) {
+            outcome = RequestMetrics.Outcome.SERVICE_UNAVAILABLE;
+            throw e;
+        } finally {
+            metrics.end(start, outcome);
+        }
+    }
+
+    @Override
+    public String getContentType() {
+        return delegate.getContentType();
+    }
+}
@@ -0,0 +1,17 @@
+package org.example.Performance.server;
+
+import org.example.Performance.metrics.ServerMetrics;
+
+// Handler for GET /metrics, all server metrics in the Prometheus text format
+public class MetricsHandler extends EndpointHandler {
+    private final ServerMetrics metrics;
+
+    public MetricsHandler(ServerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void respond(String method, String query, byte[] body, ResponseBuffer response) {
+        response.append(metrics.toPrometheusText());
+    }
+}
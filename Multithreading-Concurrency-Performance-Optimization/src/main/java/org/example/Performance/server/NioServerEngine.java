@@ -0,0 +1,543 @@
+package org.example.Performance.server;
+
+import org.example.Performance.metrics.ServerMetrics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Non-blocking HTTP/1.1 server built directly on java.nio selectors
+// Every thread runs its own event loop with its own Selector and accepts connections from the shared server socket,
+// so there is no hand-off between threads and no thread is ever blocked on a slow client
+// Supports keep-alive, pipelined requests and request bodies with Content-Length (no chunked encoding)
+// The request path does not allocate per request apart from the decoded query:
+// headers are parsed in place in the input buffer, endpoints write into a ResponseBuffer owned by the event loop,
+// and responses are assembled from pre-encoded status lines in a per-connection direct output buffer
+// Endpoints are matched by exact path
+public class NioServerEngine implements ServerEngine {
+    private static final int READ_BUFFER_SIZE = 8 * 1024;
+    private static final int WRITE_BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_HEADER_SIZE = 64 * 1024;
+    private static final byte[] NO_BODY = new byte[0];
+
+    // Pre-encoded parts of the responses, the 200 status line and Content-Type are encoded per endpoint
+    private static final String OK_HEADER = "HTTP/1.1 200 OK\r\nContent-Type: %s\r\nContent-Length: ";
+    private static final byte[] HEADER_END = encode("\r\n\r\n");
+    private static final byte[] CLOSE_HEADER_END = encode("\r\nConnection: close\r\n\r\n");
+    private static final byte[] BAD_REQUEST = encode("HTTP/1.1 400 Bad Request\r\nContent-Length: 0\r\n\r\n");
+    private static final byte[] NOT_FOUND = encode("HTTP/1.1 404 Not Found\r\nContent-Length: 0\r\n\r\n");
+    private static final byte[] TOO_LARGE = encode("HTTP/1.1 413 Payload Too Large\r\nContent-Length: 0\r\nConnection: close\r\n\r\n");
+    private static final byte[] SERVER_ERROR = encode("HTTP/1.1 500 Internal Server Error\r\nContent-Length: 0\r\n\r\n");
+    private static final byte[] SERVICE_UNAVAILABLE = encode("HTTP/1.1 503 Service Unavailable\r\nRetry-After: 1\r\nContent-Length: 0\r\n\r\n");
+
+    // Header names compared in place, lower case
+    private static final byte[] CONTENT_LENGTH = encode("content-length");
+    private static final byte[] CONNECTION = encode("connection");
+    private static final byte[] TRANSFER_ENCODING = encode("transfer-encoding");
+    private static final byte[] CLOSE = encode("close");
+    private static final byte[] KEEP_ALIVE = encode("keep-alive");
+    private static final byte[] HTTP_1_1 = encode("HTTP/1.1");
+    private static final byte[] GET = encode("GET");
+    private static final byte[] POST = encode("POST");
+    private static final byte[] HEAD = encode("HEAD");
+
+    private final ServerConfig config;
+    private final Map<String, EndpointHandler> endpoints = new LinkedHashMap<>();
+    private final List<EventLoop> eventLoops = new ArrayList<>();
+    private final LongAdder openConnections = new LongAdder();
+    private Endpoint[] endpointTable;
+    private ServerSocketChannel serverChannel;
+    private volatile boolean running;
+
+    public NioServerEngine(ServerConfig config) {
+        this.config = config;
+    }
+
+    @Override
+    public void addEndpoint(String path, EndpointHandler handler) {
+        endpoints.put(path, handler);
+    }
+
+    @Override
+    public void start() throws IOException {
+        // Paths are kept as bytes so they can be compared with the request line without decoding it
+        endpointTable = endpoints.entrySet().stream()
+                .map(entry -> new Endpoint(encode(entry.getKey()), entry.getValue(),
+                        encode(OK_HEADER.formatted(entry.getValue().getContentType()))))
+                .toArray(Endpoint[]::new);
+
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.configureBlocking(false);
+        serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        serverChannel.bind(new InetSocketAddress(config.getPort()), config.getBacklog());
+        running = true;
+
+        for (int i = 0; i < config.getThreads(); i++) {
+            EventLoop eventLoop = new EventLoop(Selector.open());
+            serverChannel.register(eventLoop.selector, SelectionKey.OP_ACCEPT);
+            eventLoops.add(eventLoop);
+            Thread.ofPlatform().name("nio-event-loop-" + i).start(eventLoop);
+        }
+    }
+
+    @Override
+    public void registerMetrics(ServerMetrics metrics) {
+        // Requests never wait in a queue here, the backlog of work is the number of connections per event loop
+        metrics.registerGauge("nio_open_connections", "Client connections open in all event loops", openConnections::sum);
+        metrics.registerGauge("nio_event_loops", "Event loop threads", config::getThreads);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        for (EventLoop eventLoop : eventLoops) {
+            eventLoop.selector.wakeup();
+        }
+        try {
+            if (serverChannel != null) {
+                serverChannel.close();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static byte[] encode(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // Single threaded loop serving all connections accepted by its selector
+    private class EventLoop implements Runnable {
+        private final Selector selector;
+        // Reused for every request handled by this loop
+        private final ResponseBuffer responseBuffer = new ResponseBuffer();
+        private final RequestHead head = new RequestHead();
+
+        private EventLoop(Selector selector) {
+            this.selector = selector;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select();
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        if (key.isAcceptable()) {
+                            accept();
+                            continue;
+                        }
+                        try {
+                            if (key.isReadable()) {
+                                read(key);
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                flush(key);
+                            }
+                        } catch (IOException e) {
+                            close(key);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    close(key);
+                }
+                try {
+                    selector.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        private void accept() throws IOException {
+            // Every event loop is woken up for a new connection, the ones which lose the race get null
+            SocketChannel channel = serverChannel.accept();
+            if (channel == null) {
+                return;
+            }
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.register(selector, SelectionKey.OP_READ, new Connection());
+            openConnections.increment();
+        }
+
+        private void read(SelectionKey key) throws IOException {
+            Connection connection = (Connection) key.attachment();
+            SocketChannel channel = (SocketChannel) key.channel();
+            if (!connection.input.hasRemaining()) {
+                connection.growInput();
+            }
+            int read = channel.read(connection.input);
+            if (read < 0) {
+                close(key);
+                return;
+            }
+            processRequests(connection);
+            flush(key);
+        }
+
+        private void flush(SelectionKey key) throws IOException {
+            Connection connection = (Connection) key.attachment();
+            SocketChannel channel = (SocketChannel) key.channel();
+            ByteBuffer output = connection.output;
+
+            output.flip();
+            channel.write(output);
+            boolean pending = output.hasRemaining();
+            output.compact();
+
+            if (pending) {
+                // Socket send buffer is full, continue when it becomes writable
+                // Reading stops meanwhile: a client pipelining requests without reading the responses
+                // would otherwise grow the output buffer without limit, now it fills its own send buffer and waits
+                key.interestOps(SelectionKey.OP_WRITE);
+            } else if (connection.closeAfterWrite) {
+                close(key);
+            } else {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        }
+
+        private void close(SelectionKey key) {
+            if (key.attachment() instanceof Connection && key.channel().isOpen()) {
+                openConnections.decrement();
+            }
+            key.cancel();
+            try {
+                key.channel().close();
+            } catch (IOException e) {
+                // Nothing more can be done for a broken connection
+            }
+        }
+
+        // Parse every complete request in the input buffer and queue its response
+        private void processRequests(Connection connection) {
+            ByteBuffer input = connection.input;
+            input.flip();
+            byte[] bytes = input.array();
+
+            while (!connection.closeAfterWrite) {
+                int start = input.position();
+                int headerEnd = indexOfHeaderEnd(bytes, start, input.limit());
+                if (headerEnd < 0) {
+                    if (input.remaining() > MAX_HEADER_SIZE) {
+                        connection.write(TOO_LARGE);
+                        connection.closeAfterWrite = true;
+                    }
+                    break;
+                }
+
+                if (!head.parse(bytes, start, headerEnd)) {
+                    connection.write(BAD_REQUEST);
+                    connection.closeAfterWrite = true;
+                    break;
+                }
+                if (head.contentLength > EndpointHandler.MAX_BODY_SIZE) {
+                    connection.write(TOO_LARGE);
+                    connection.closeAfterWrite = true;
+                    break;
+                }
+                if (input.limit() - headerEnd < head.contentLength) {
+                    // Body not fully received yet
+                    break;
+                }
+
+                byte[] body = NO_BODY;
+                if (head.contentLength > 0) {
+                    body = new byte[head.contentLength];
+                    System.arraycopy(bytes, headerEnd, body, 0, body.length);
+                }
+                input.position(headerEnd + head.contentLength);
+
+                dispatch(connection, bytes, body);
+                if (!head.keepAlive) {
+                    connection.closeAfterWrite = true;
+                }
+            }
+
+            input.compact();
+        }
+
+        private void dispatch(Connection connection, byte[] bytes, byte[] body) {
+            Endpoint endpoint = findEndpoint(bytes, head.targetStart, head.pathEnd);
+            if (endpoint == null) {
+                connection.write(NOT_FOUND);
+                return;
+            }
+
+            responseBuffer.reset();
+            String method = head.method(bytes);
+            try {
+                String query = head.pathEnd < head.targetEnd ? decode(bytes, head.pathEnd + 1, head.targetEnd) : null;
+                endpoint.handler().respond(method, query, body, responseBuffer);
+            } catch (IllegalArgumentException e) {
+                connection.write(BAD_REQUEST);
+                return;
+            } catch (ServiceUnavailableException e) {
+                connection.write(SERVICE_UNAVAILABLE);
+                return;
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+                connection.write(SERVER_ERROR);
+                return;
+            }
+
+            connection.write(endpoint.okHeader());
+            connection.writeDecimal(responseBuffer.length());
+            connection.write(head.keepAlive ? HEADER_END : CLOSE_HEADER_END);
+            // HEAD responses announce the length of the body but do not carry it,
+            // the next pipelined response must start right after the headers
+            if (!method.equals("HEAD")) {
+                connection.write(responseBuffer);
+            }
+        }
+    }
+
+    private Endpoint findEndpoint(byte[] bytes, int from, int to) {
+        for (Endpoint endpoint : endpointTable) {
+            if (regionEquals(bytes, from, to, endpoint.path, false)) {
+                return endpoint;
+            }
+        }
+        return null;
+    }
+
+    // Returns the index just after the first "\r\n\r\n" or -1 if the header is not complete
+    private static int indexOfHeaderEnd(byte[] bytes, int from, int to) {
+        for (int i = from; i + 3 < to; i++) {
+            if (bytes[i] == '\r' && bytes[i + 1] == '\n' && bytes[i + 2] == '\r' && bytes[i + 3] == '\n') {
+                return i + 4;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean regionEquals(byte[] bytes, int from, int to, byte[] expected, boolean ignoreCase) {
+        if (to - from != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            byte actual = bytes[from + i];
+            if (ignoreCase && actual >= 'A' && actual <= 'Z') {
+                actual += 'a' - 'A';
+            }
+            if (actual != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Percent-decode the query like URI.getQuery() does, '+' is kept as it is
+    private static String decode(byte[] bytes, int from, int to) {
+        int percent = -1;
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == '%') {
+                percent = i;
+                break;
+            }
+        }
+        if (percent < 0) {
+            return new String(bytes, from, to - from, StandardCharsets.UTF_8);
+        }
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream(to - from);
+        decoded.write(bytes, from, percent - from);
+        for (int i = percent; i < to; i++) {
+            if (bytes[i] == '%') {
+                if (i + 2 >= to) {
+                    throw new IllegalArgumentException("Malformed escape in query");
+                }
+                int high = Character.digit(bytes[i + 1], 16);
+                int low = Character.digit(bytes[i + 2], 16);
+                if (high < 0 || low < 0) {
+                    throw new IllegalArgumentException("Malformed escape in query");
+                }
+                decoded.write(high * 16 + low);
+                i += 2;
+            } else {
+                decoded.write(bytes[i]);
+            }
+        }
+        return decoded.toString(StandardCharsets.UTF_8);
+    }
+
+    // Endpoint path as bytes with the start of its 200 response up to the Content-Length value
+    private record Endpoint(byte[] path, EndpointHandler handler, byte[] okHeader) {
+    }
+
+    // State of a single client connection, only touched by the event loop owning it
+    private static class Connection {
+        private ByteBuffer input = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        // Responses waiting to be written, in write mode
+        private ByteBuffer output = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+        private boolean closeAfterWrite = false;
+
+        private void write(byte[] bytes) {
+            ensureOutput(bytes.length);
+            output.put(bytes);
+        }
+
+        private void write(ResponseBuffer response) {
+            ensureOutput(response.length());
+            response.writeTo(output);
+        }
+
+        private void writeDecimal(int value) {
+            ensureOutput(10);
+            int divisor = 1;
+            while (value / divisor >= 10) {
+                divisor *= 10;
+            }
+            for (; divisor > 0; divisor /= 10) {
+                output.put((byte) ('0' + value / divisor % 10));
+            }
+        }
+
+        private void ensureOutput(int length) {
+            if (output.remaining() < length) {
+                ByteBuffer grown = ByteBuffer.allocateDirect(Math.max(output.capacity() * 2, output.position() + length));
+                output.flip();
+                grown.put(output);
+                output = grown;
+            }
+        }
+
+        // Called when a request (usually with a large body) does not fit into the buffer
+        private void growInput() {
+            ByteBuffer grown = ByteBuffer.allocate(input.capacity() * 2);
+            input.flip();
+            grown.put(input);
+            input = grown;
+        }
+    }
+
+    // Request line and the headers the engine cares about, parsed in place and reused for every request
+    private static class RequestHead {
+        private int methodStart;
+        private int methodEnd;
+        private int targetStart;
+        // End of the path, equals targetEnd when there is no query
+        private int pathEnd;
+        private int targetEnd;
+        private int contentLength;
+        private boolean keepAlive;
+
+        // Returns false for malformed requests
+        private boolean parse(byte[] bytes, int from, int to) {
+            contentLength = 0;
+            // Every line ends with "\r\n" because the region includes the blank line ending the header
+            int lineEnd = indexOf(bytes, from, to, (byte) '\r');
+            if (lineEnd < 0) {
+                return false;
+            }
+            int firstSpace = indexOf(bytes, from, lineEnd, (byte) ' ');
+            int secondSpace = firstSpace < 0 ? -1 : indexOf(bytes, firstSpace + 1, lineEnd, (byte) ' ');
+            if (firstSpace <= from || secondSpace < 0) {
+                return false;
+            }
+            methodStart = from;
+            methodEnd = firstSpace;
+            targetStart = firstSpace + 1;
+            targetEnd = secondSpace;
+            int question = indexOf(bytes, targetStart, targetEnd, (byte) '?');
+            pathEnd = question < 0 ? targetEnd : question;
+            // HTTP/1.1 connections are persistent by default, HTTP/1.0 only when asked for
+            keepAlive = regionEquals(bytes, secondSpace + 1, lineEnd, HTTP_1_1, false);
+
+            int lineStart = lineEnd + 2;
+            while (lineStart < to - 2) {
+                lineEnd = indexOf(bytes, lineStart, to, (byte) '\r');
+                if (lineEnd < 0) {
+                    return false;
+                }
+                int colon = indexOf(bytes, lineStart, lineEnd, (byte) ':');
+                if (colon > lineStart && !parseHeader(bytes, lineStart, colon, lineEnd)) {
+                    return false;
+                }
+                lineStart = lineEnd + 2;
+            }
+            return true;
+        }
+
+        private boolean parseHeader(byte[] bytes, int nameStart, int colon, int lineEnd) {
+            int valueStart = colon + 1;
+            while (valueStart < lineEnd && bytes[valueStart] == ' ') {
+                valueStart++;
+            }
+            int valueEnd = lineEnd;
+            while (valueEnd > valueStart && bytes[valueEnd - 1] == ' ') {
+                valueEnd--;
+            }
+
+            if (regionEquals(bytes, nameStart, colon, CONTENT_LENGTH, true)) {
+                if (valueStart == valueEnd || valueEnd - valueStart > 9) {
+                    return false;
+                }
+                int length = 0;
+                for (int i = valueStart; i < valueEnd; i++) {
+                    if (bytes[i] < '0' || bytes[i] > '9') {
+                        return false;
+                    }
+                    length = length * 10 + (bytes[i] - '0');
+                }
+                contentLength = length;
+            } else if (regionEquals(bytes, nameStart, colon, CONNECTION, true)) {
+                if (regionEquals(bytes, valueStart, valueEnd, CLOSE, true)) {
+                    keepAlive = false;
+                } else if (regionEquals(bytes, valueStart, valueEnd, KEEP_ALIVE, true)) {
+                    keepAlive = true;
+                }
+            } else if (regionEquals(bytes, nameStart, colon, TRANSFER_ENCODING, true)) {
+                // Chunked request bodies are not supported
+                return false;
+            }
+            return true;
+        }
+
+        // Common methods are returned as constants, so the method name is not allocated
+        private String method(byte[] bytes) {
+            if (regionEquals(bytes, methodStart, methodEnd, GET, false)) {
+                return "GET";
+            }
+            if (regionEquals(bytes, methodStart, methodEnd, POST, false)) {
+                return "POST";
+            }
+            if (regionEquals(bytes, methodStart, methodEnd, HEAD, false)) {
+                return "HEAD";
+            }
+            return new String(bytes, methodStart, methodEnd - methodStart, StandardCharsets.US_ASCII);
+        }
+
+        private static int indexOf(byte[] bytes, int from, int to, byte value) {
+            for (int i = from; i < to; i++) {
+                if (bytes[i] == value) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.example.Performance.server;
+
+// Allocation free helpers for "name=value&name=value" query strings
+// Parameters are located by index arithmetic instead of String.split, which creates
+// a regex match, an array and a String for every part of the query
+public final class QueryParameters {
+
+    private QueryParameters() {
+    }
+
+    // Index of the first character of the value of the parameter, or -1 when it is missing
+    public static int valueStart(String query, String name) {
+        if (query == null) {
+            return -1;
+        }
+        int start = 0;
+        int length = query.length();
+        while (start < length) {
+            int end = query.indexOf('&', start);
+            if (end < 0) {
+                end = length;
+            }
+            if (end - start > name.length() && query.charAt(start + name.length()) == '='
+                    && query.startsWith(name, start)) {
+                return start + name.length() + 1;
+            }
+            start = end + 1;
+        }
+        return -1;
+    }
+
+    // Index just after the last character of the value starting at valueStart
+    public static int valueEnd(String query, int valueStart) {
+        int end = query.indexOf('&', valueStart);
+        return end < 0 ? query.length() : end;
+    }
+
+    // Value of the parameter or null when it is missing, allocates only the returned String
+    public static String value(String query, String name) {
+        int start = valueStart(query, name);
+        return start < 0 ? null : query.substring(start, valueEnd(query, start));
+    }
+}
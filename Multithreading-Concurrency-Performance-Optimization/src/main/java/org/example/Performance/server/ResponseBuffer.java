@@ -0,0 +1,125 @@
+package org.example.Performance.server;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Growable byte buffer the endpoints write their response body into
+// Buffers are reused between requests (per platform thread or per NIO event loop),
+// so once a buffer has grown to the typical response size the request path does not allocate
+// Numbers are encoded straight into bytes without creating a String
+public class ResponseBuffer {
+    private static final int INITIAL_CAPACITY = 256;
+    private static final byte[] LONG_MIN_VALUE = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+    private byte[] bytes;
+    private int length = 0;
+
+    public ResponseBuffer() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public ResponseBuffer(int capacity) {
+        this.bytes = new byte[capacity];
+    }
+
+    public ResponseBuffer reset() {
+        length = 0;
+        return this;
+    }
+
+    public ResponseBuffer append(byte value) {
+        ensureCapacity(1);
+        bytes[length++] = value;
+        return this;
+    }
+
+    public ResponseBuffer append(byte[] values) {
+        ensureCapacity(values.length);
+        System.arraycopy(values, 0, bytes, length, values.length);
+        length += values.length;
+        return this;
+    }
+
+    // Append the decimal representation of the value
+    public ResponseBuffer append(long value) {
+        if (value == Long.MIN_VALUE) {
+            return append(LONG_MIN_VALUE);
+        }
+        if (value < 0) {
+            append((byte) '-');
+            value = -value;
+        }
+        int digits = 1;
+        for (long remaining = value / 10; remaining > 0; remaining /= 10) {
+            digits++;
+        }
+        ensureCapacity(digits);
+        for (int i = length + digits - 1; i >= length; i--) {
+            bytes[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        length += digits;
+        return this;
+    }
+
+    // Append text as UTF-8, ASCII characters are copied without creating an intermediate array
+    public ResponseBuffer append(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            char character = text.charAt(i);
+            if (character >= 0x80) {
+                return append(text.subSequence(i, text.length()).toString().getBytes(StandardCharsets.UTF_8));
+            }
+            append((byte) character);
+        }
+        return this;
+    }
+
+    public ResponseBuffer append(byte[] values, int offset, int count) {
+        ensureCapacity(count);
+        System.arraycopy(values, offset, bytes, length, count);
+        length += count;
+        return this;
+    }
+
+    // Stream appending to this buffer, for encoders writing to an OutputStream (e.g. ImageIO)
+    public OutputStream outputStream() {
+        return new OutputStream() {
+            @Override
+            public void write(int value) {
+                append((byte) value);
+            }
+
+            @Override
+            public void write(byte[] values, int offset, int count) {
+                append(values, offset, count);
+            }
+        };
+    }
+
+    // Copy the content into the buffer
+    public void writeTo(ByteBuffer target) {
+        target.put(bytes, 0, length);
+    }
+
+    public byte[] array() {
+        return bytes;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private void ensureCapacity(int additional) {
+        if (length + additional > bytes.length) {
+            byte[] grown = new byte[Math.max(bytes.length * 2, length + additional)];
+            System.arraycopy(bytes, 0, grown, 0, length);
+            bytes = grown;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package org.example.Performance.server;
+
+import org.example.Performance.cache.EvictionPolicyType;
+import org.example.Performance.search.CorpusStorage;
+import org.example.Performance.search.ParallelSubstringWordCounter;
+import org.example.Performance.search.SearchMode;
+import org.example.cli.CommandLineOption;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Configuration of the search server
+// Every option can be given on the command line as --name=value
+// or as a system property -Dsearch.name=value, command line wins
+// Options: --port, --backlog, --engine (fixed_pool | virtual_threads | nio), --threads, --search-mode, --corpus,
+//          --cache (none | lru | tiny_lfu), --cache-size, --chunk-size (characters per parallel scan task),
+//          --storage (heap | mapped), --corpora (name=path,name=path - several named corpora instead of --corpus),
+//          --reload (true | false - reindex a corpus in the background when its file changes)
+public class ServerConfig {
+    private int port = 8000;
+    private int backlog = 0;
+    private ServerEngineType engineType = ServerEngineType.FIXED_POOL;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    // Null means the default for the storage: index for heap, parallel substring for mapped corpora
+    private SearchMode searchMode = null;
+    private CorpusStorage storage = CorpusStorage.HEAP;
+    private String corpusPath;
+    // Cache in front of the scanning counter, null means no cache
+    private EvictionPolicyType cachePolicy = EvictionPolicyType.TINY_LFU;
+    private int cacheSize = 1024;
+    private int chunkSize = ParallelSubstringWordCounter.DEFAULT_CHUNK_SIZE;
+    // Named corpora, when empty the single --corpus file is served under its file name
+    private final Map<String, String> corpora = new LinkedHashMap<>();
+    private boolean reload = true;
+
+    public ServerConfig(String corpusPath) {
+        this.corpusPath = corpusPath;
+    }
+
+    // Build the configuration from system properties and command line arguments
+    public static ServerConfig fromArgs(String[] args, String defaultCorpusPath) {
+        ServerConfig config = new ServerConfig(defaultCorpusPath);
+        for (String name : new String[]{"port", "backlog", "engine", "threads", "search-mode", "corpus", "cache", "cache-size", "chunk-size", "storage", "corpora", "reload"}) {
+            String value = System.getProperty("search." + name);
+            if (value != null) {
+                config.set(name, value);
+            }
+        }
+        for (CommandLineOption option : CommandLineOption.parse(args)) {
+            config.set(option.name(), option.value());
+        }
+        return config;
+    }
+
+    private void set(String name, String value) {
+        switch (name) {
+            case "port" -> port = Integer.parseInt(value);
+            case "backlog" -> backlog = Integer.parseInt(value);
+            case "engine" -> engineType = ServerEngineType.fromString(value);
+            case "threads" -> threads = Integer.parseInt(value);
+            case "search-mode" -> searchMode = SearchMode.fromString(value);
+            case "corpus" -> corpusPath = value;
+            case "cache" -> cachePolicy = value.equalsIgnoreCase("none") ? null : EvictionPolicyType.fromString(value);
+            case "cache-size" -> cacheSize = Integer.parseInt(value);
+            case "chunk-size" -> chunkSize = Integer.parseInt(value);
+            case "storage" -> storage = CorpusStorage.fromString(value);
+            case "corpora" -> {
+                corpora.clear();
+                for (String corpus : value.split(",")) {
+                    int separator = corpus.indexOf('=');
+                    if (separator <= 0) {
+                        throw new IllegalArgumentException("Expected name=path but got: " + corpus);
+                    }
+                    corpora.put(corpus.substring(0, separator).trim(), corpus.substring(separator + 1).trim());
+                }
+            }
+            case "reload" -> reload = Boolean.parseBoolean(value);
+            default -> throw new IllegalArgumentException("Unknown option: " + name);
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive: " + threads);
+        }
+        if (cacheSize < 1) {
+            throw new IllegalArgumentException("Cache size must be positive: " + cacheSize);
+        }
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public ServerConfig setPort(int port) {
+        this.port = port;
+        return this;
+    }
+
+    public int getBacklog() {
+        return backlog;
+    }
+
+    public ServerEngineType getEngineType() {
+        return engineType;
+    }
+
+    public ServerConfig setEngineType(ServerEngineType engineType) {
+        this.engineType = engineType;
+        return this;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public ServerConfig setThreads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    public SearchMode getSearchMode() {
+        if (searchMode != null) {
+            return searchMode;
+        }
+        return storage == CorpusStorage.MAPPED ? SearchMode.PARALLEL_SUBSTRING : SearchMode.INDEX;
+    }
+
+    public ServerConfig setSearchMode(SearchMode searchMode) {
+        this.searchMode = searchMode;
+        return this;
+    }
+
+    public String getCorpusPath() {
+        return corpusPath;
+    }
+
+    public EvictionPolicyType getCachePolicy() {
+        return cachePolicy;
+    }
+
+    public ServerConfig setCachePolicy(EvictionPolicyType cachePolicy) {
+        this.cachePolicy = cachePolicy;
+        return this;
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    public ServerConfig setCacheSize(int cacheSize) {
+        this.cacheSize = cacheSize;
+        return this;
+    }
+
+    // Corpus name to file path, e.g. war_and_peace -> /data/war_and_peace.txt
+    public Map<String, Path> getCorpora() {
+        Map<String, Path> result = new LinkedHashMap<>();
+        if (corpora.isEmpty()) {
+            Path path = Paths.get(corpusPath);
+            String fileName = path.getFileName().toString();
+            int extension = fileName.lastIndexOf('.');
+            result.put(extension > 0 ? fileName.substring(0, extension) : fileName, path);
+        } else {
+            corpora.forEach((name, corpus) -> result.put(name, Paths.get(corpus)));
+        }
+        return result;
+    }
+
+    public boolean isReload() {
+        return reload;
+    }
+
+    public ServerConfig setReload(boolean reload) {
+        this.reload = reload;
+        return this;
+    }
+
+    public CorpusStorage getStorage() {
+        return storage;
+    }
+
+    public ServerConfig setStorage(CorpusStorage storage) {
+        this.storage = storage;
+        return this;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public ServerConfig setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "engine=" + engineType + ", threads=" + threads + ", port=" + port
+                + ", search-mode=" + getSearchMode() + ", storage=" + storage + ", corpora=" + getCorpora() + ", reload=" + reload
+                + ", cache=" + (cachePolicy == null ? "none" : cachePolicy + "(" + cacheSize + ")");
+    }
+}
@@ -0,0 +1,31 @@
+package org.example.Performance.server;
+
+import org.example.Performance.metrics.ServerMetrics;
+
+import java.io.IOException;
+
+// Pluggable HTTP server engine used by ThroughputMultithreading
+// Endpoints have to be added before the engine is started
+public interface ServerEngine {
+
+    // Register a handler for requests with exactly this path
+    void addEndpoint(String path, EndpointHandler handler);
+
+    // Bind the port and start serving requests
+    void start() throws IOException;
+
+    // Stop accepting requests and release threads
+    void stop();
+
+    // Register engine specific gauges (executor queue, connections), engines without any keep the default
+    default void registerMetrics(ServerMetrics metrics) {
+    }
+
+    // Create the engine selected in the configuration
+    static ServerEngine create(ServerConfig config) {
+        return switch (config.getEngineType()) {
+            case FIXED_POOL, VIRTUAL_THREADS -> new HttpServerEngine(config);
+            case NIO -> new NioServerEngine(config);
+        };
+    }
+}
@@ -0,0 +1,16 @@
+package org.example.Performance.server;
+
+// Available server engines
+// FIXED_POOL - com.sun HttpServer with a fixed size platform thread pool (the original setup)
+// VIRTUAL_THREADS - com.sun HttpServer with a new virtual thread for every request
+// NIO - non-blocking selector based server, one event loop per thread
+public enum ServerEngineType {
+    FIXED_POOL,
+    VIRTUAL_THREADS,
+    NIO;
+
+    // Parse engine type from a command line value, e.g. "nio" or "virtual-threads"
+    public static ServerEngineType fromString(String value) {
+        return valueOf(value.trim().toUpperCase().replace('-', '_'));
+    }
+}
@@ -0,0 +1,10 @@
+package org.example.Performance.server;
+
+// Thrown by an endpoint to answer with 503 Service Unavailable, e.g. when admission control rejects a request
+// Clients are asked to retry after a second
+public class ServiceUnavailableException extends RuntimeException {
+
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+}
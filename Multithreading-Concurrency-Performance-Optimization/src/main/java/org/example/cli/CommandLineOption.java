@@ -0,0 +1,39 @@
+package org.example.cli;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Command line option in the --name=value form every main of the project takes
+// The arguments are split and checked here, the mains only switch over the option names they know:
+//     for (CommandLineOption option : CommandLineOption.parse(args)) {
+//         String value = option.value();
+//         switch (option.name()) {
+//             case "port" -> port = Integer.parseInt(value);
+//             default -> throw option.unknown();
+//         }
+//     }
+// argument is the option as it was given, for error messages and for passing it on to another parser
+public record CommandLineOption(String name, String value, String argument) {
+
+    // Parse all arguments, throws IllegalArgumentException for the first one not in the --name=value form
+    public static List<CommandLineOption> parse(String[] args) {
+        List<CommandLineOption> options = new ArrayList<>(args.length);
+        for (String arg : args) {
+            options.add(parse(arg));
+        }
+        return options;
+    }
+
+    public static CommandLineOption parse(String arg) {
+        int separator = arg.indexOf('=');
+        if (!arg.startsWith("--") || separator < 0) {
+            throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+        }
+        return new CommandLineOption(arg.substring(2, separator), arg.substring(separator + 1), arg);
+    }
+
+    // Exception for an option the main does not know, thrown by the default branch of its switch
+    public IllegalArgumentException unknown() {
+        return new IllegalArgumentException("Unknown option: " + argument);
+    }
+}
@@ -0,0 +1,61 @@
+package org.example.conditionVariables;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Binary file of matrix pairs, read without parsing a single number
+// Layout, all values little endian:
+//   header  - magic "MTRX", int version, int N, int reserved (0), long pair count   (24 bytes)
+//   pairs   - matrix A then matrix B, each N * N floats row by row
+// The floats are the exact values, not rounded to two decimals like the text format
+// Little endian matches x86 and ARM, so the floats are copied from the buffer without swapping bytes
+public final class BinaryMatrixFormat {
+    public static final int MAGIC = 'M' | 'T' << 8 | 'R' << 16 | 'X' << 24;
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 24;
+    public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+    static final int PAIR_COUNT_OFFSET = 16;
+
+    private BinaryMatrixFormat() {
+    }
+
+    // Bytes of one pair of N x N matrices
+    public static long pairSize(int n) {
+        return 2L * n * n * Float.BYTES;
+    }
+
+    // Floats of one N x N matrix, which is held in a single float[]
+    public static int matrixLength(int n) {
+        if (n < 1) {
+            throw new IllegalArgumentException("Matrix size must be positive: " + n);
+        }
+        try {
+            return Math.multiplyExact(n, n);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("A " + n + "x" + n + " matrix does not fit in an array");
+        }
+    }
+
+    // Whether the file starts with the magic of this format, text files never do
+    public static boolean isBinary(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES).order(BYTE_ORDER);
+            while (magic.hasRemaining()) {
+                if (channel.read(magic) < 0) {
+                    return false;
+                }
+            }
+            return magic.getInt(0) == MAGIC;
+        }
+    }
+
+    static ByteBuffer header(int n, long pairCount) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(BYTE_ORDER);
+        header.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(0).putLong(pairCount);
+        return header.flip();
+    }
+}
@@ -0,0 +1,106 @@
+package org.example.conditionVariables;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Reads matrix pairs in the BinaryMatrixFormat through a FileChannel
+// The file is read in large blocks into one direct buffer and the rows are bulk copied out of its float view,
+// reading a pair costs two memory copies instead of parsing N * N * 2 numbers
+// A matrix larger than the buffer is copied in several parts, so the buffer size does not depend on N
+// Blocks are read instead of mapping the file, so files larger than 2 GB need no segments
+public class BinaryMatrixReader implements MatrixPairReader {
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final int n;
+    private final int matrixLength;
+    private final long pairCount;
+    private final ByteBuffer buffer;
+    private long pairsRead = 0;
+
+    public BinaryMatrixReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(BinaryMatrixFormat.HEADER_SIZE).order(BinaryMatrixFormat.BYTE_ORDER);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    throw new IOException("Truncated header in " + path);
+                }
+            }
+            if (header.getInt(0) != BinaryMatrixFormat.MAGIC) {
+                throw new IOException("Not a binary matrix file: " + path);
+            }
+            if (header.getInt(4) != BinaryMatrixFormat.VERSION) {
+                throw new IOException("Unsupported binary matrix version " + header.getInt(4) + " in " + path);
+            }
+            this.n = header.getInt(8);
+            this.pairCount = header.getLong(BinaryMatrixFormat.PAIR_COUNT_OFFSET);
+            if (n < 1 || pairCount < 0) {
+                throw new IOException("Corrupt binary matrix header in " + path);
+            }
+            this.matrixLength = BinaryMatrixFormat.matrixLength(n);
+            // Divided instead of multiplied, a corrupt pair count must not overflow the check
+            if (pairCount > (channel.size() - BinaryMatrixFormat.HEADER_SIZE) / BinaryMatrixFormat.pairSize(n)) {
+                throw new IOException("Binary matrix file " + path + " is shorter than its " + pairCount + " pairs");
+            }
+            this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(BinaryMatrixFormat.BYTE_ORDER);
+            buffer.flip();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Read the next pair into the given N x N matrices (row-major, N * N floats), false when all pairs have been read
+    // The file stores the matrices row-major as well, each one is a single bulk copy
+    @Override
+    public boolean readPair(float[] matrixA, float[] matrixB) throws IOException {
+        if (pairsRead == pairCount) {
+            return false;
+        }
+        get(matrixA);
+        get(matrixB);
+        pairsRead++;
+        return true;
+    }
+
+    // Copy as many floats as the buffer holds, then refill it until the matrix is complete
+    private void get(float[] matrix) throws IOException {
+        for (int offset = 0; offset < matrixLength; ) {
+            if (buffer.remaining() < Float.BYTES) {
+                fill();
+            }
+            int count = Math.min(matrixLength - offset, buffer.remaining() / Float.BYTES);
+            buffer.asFloatBuffer().get(matrix, offset, count);
+            buffer.position(buffer.position() + count * Float.BYTES);
+            offset += count;
+        }
+    }
+
+    private void fill() throws IOException {
+        buffer.compact();
+        while (buffer.position() < Float.BYTES) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Truncated binary matrix file after " + pairsRead + " pairs");
+            }
+        }
+        buffer.flip();
+    }
+
+    @Override
+    public int getN() {
+        return n;
+    }
+
+    public long getPairCount() {
+        return pairCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
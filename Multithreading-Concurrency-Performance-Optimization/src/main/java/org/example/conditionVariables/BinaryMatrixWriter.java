@@ -0,0 +1,73 @@
+package org.example.conditionVariables;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Writes matrix pairs in the BinaryMatrixFormat through a FileChannel
+// Matrices are copied into a direct buffer as floats and written when the buffer is full,
+// a matrix larger than the buffer is copied in several parts, so the buffer size does not depend on N
+// the pair count in the header is filled in on close, so the number of pairs does not have to be known up front
+public class BinaryMatrixWriter implements AutoCloseable {
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final int n;
+    private final int matrixLength;
+    private final ByteBuffer buffer;
+    private long pairCount = 0;
+
+    public BinaryMatrixWriter(Path path, int n) throws IOException {
+        this.matrixLength = BinaryMatrixFormat.matrixLength(n);
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.n = n;
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(BinaryMatrixFormat.BYTE_ORDER);
+        buffer.put(BinaryMatrixFormat.header(n, 0));
+    }
+
+    // Append a pair of N x N matrices (row-major, N * N floats)
+    public void writePair(float[] matrixA, float[] matrixB) throws IOException {
+        put(matrixA);
+        put(matrixB);
+        pairCount++;
+    }
+
+    // Copy as many floats as the buffer has room for, then write it out until the matrix is complete
+    private void put(float[] matrix) throws IOException {
+        for (int offset = 0; offset < matrixLength; ) {
+            if (buffer.remaining() < Float.BYTES) {
+                flush();
+            }
+            int count = Math.min(matrixLength - offset, buffer.remaining() / Float.BYTES);
+            buffer.asFloatBuffer().put(matrix, offset, count);
+            buffer.position(buffer.position() + count * Float.BYTES);
+            offset += count;
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    public long getPairCount() {
+        return pairCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+            ByteBuffer header = BinaryMatrixFormat.header(n, pairCount);
+            channel.write(header, 0);
+        } finally {
+            channel.close();
+        }
+    }
+}
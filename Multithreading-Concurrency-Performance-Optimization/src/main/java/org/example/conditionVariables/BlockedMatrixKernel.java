@@ -0,0 +1,67 @@
+package org.example.conditionVariables;
+
+import java.util.Arrays;
+
+// i-k-j kernel on tiles of blockSize result rows and blockSize values of k: the blockSize rows of b of a k tile
+// are reused for every result row of the row tile while they are still in the L2 cache
+// Four result rows are updated per element of b, so each value of b is loaded once for four multiply-adds
+// The inner loop still runs along whole rows, which keeps the accesses sequential for the hardware prefetcher
+// The k tiles run in ascending order for every element, the sums are the same as in the naive loop
+public class BlockedMatrixKernel implements MatrixKernel {
+    public static final int DEFAULT_BLOCK_SIZE = 64;
+
+    private final int blockSize;
+
+    public BlockedMatrixKernel(int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public void multiply(float[] a, float[] b, float[] c, int n, int fromRow, int toRow) {
+        Arrays.fill(c, fromRow * n, toRow * n, 0);
+        for (int rowBlock = fromRow; rowBlock < toRow; rowBlock += blockSize) {
+            int rowEnd = Math.min(rowBlock + blockSize, toRow);
+            for (int kBlock = 0; kBlock < n; kBlock += blockSize) {
+                int kEnd = Math.min(kBlock + blockSize, n);
+                int r = rowBlock;
+                for (; r + 4 <= rowEnd; r += 4) {
+                    int cRow0 = r * n;
+                    int cRow1 = cRow0 + n;
+                    int cRow2 = cRow1 + n;
+                    int cRow3 = cRow2 + n;
+                    for (int k = kBlock; k < kEnd; k++) {
+                        float a0 = a[cRow0 + k];
+                        float a1 = a[cRow1 + k];
+                        float a2 = a[cRow2 + k];
+                        float a3 = a[cRow3 + k];
+                        int bRow = k * n;
+                        for (int col = 0; col < n; col++) {
+                            float bValue = b[bRow + col];
+                            c[cRow0 + col] += a0 * bValue;
+                            c[cRow1 + col] += a1 * bValue;
+                            c[cRow2 + col] += a2 * bValue;
+                            c[cRow3 + col] += a3 * bValue;
+                        }
+                    }
+                }
+                for (; r < rowEnd; r++) {
+                    int cRow = r * n;
+                    for (int k = kBlock; k < kEnd; k++) {
+                        float aValue = a[cRow + k];
+                        int bRow = k * n;
+                        for (int col = 0; col < n; col++) {
+                            c[cRow + col] += aValue * b[bRow + col];
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+}
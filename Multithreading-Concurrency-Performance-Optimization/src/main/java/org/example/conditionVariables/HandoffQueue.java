@@ -0,0 +1,16 @@
+package org.example.conditionVariables;
+
+// Bounded queue between one producer and several consumers
+// The producer adds items and terminates the queue when it is done,
+// consumers remove items until the queue is terminated and empty
+public interface HandoffQueue<T> {
+
+    // Add an item, waits while the queue is full
+    void add(T item) throws InterruptedException;
+
+    // Remove and return an item, waits while the queue is empty, null once the queue is terminated and empty
+    T remove();
+
+    // No more items will be added, every waiting consumer wakes up
+    void terminate();
+}
@@ -0,0 +1,25 @@
+package org.example.conditionVariables;
+
+import java.util.Arrays;
+
+// The naive loops with k and c swapped: a[r][k] is fixed in the innermost loop, which runs along a row of b
+// and a row of the result, so every access is sequential and the JIT turns the loop into SIMD instructions
+// Every row of b is still read once per row of the result, for large N b no longer fits in the cache
+public class IkjMatrixKernel implements MatrixKernel {
+    public static final IkjMatrixKernel INSTANCE = new IkjMatrixKernel();
+
+    @Override
+    public void multiply(float[] a, float[] b, float[] c, int n, int fromRow, int toRow) {
+        for (int r = fromRow; r < toRow; r++) {
+            int cRow = r * n;
+            Arrays.fill(c, cRow, cRow + n, 0);
+            for (int k = 0; k < n; k++) {
+                float aValue = a[cRow + k];
+                int bRow = k * n;
+                for (int col = 0; col < n; col++) {
+                    c[cRow + col] += aValue * b[bRow + col];
+                }
+            }
+        }
+    }
+}
@@ -1,67 +1,152 @@
 package org.example.conditionVariables;
 
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
+import org.example.cli.CommandLineOption;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.LinkedList;
-import java.util.Queue;
-import java.util.Scanner;
-import java.util.StringJoiner;
+import java.io.OutputStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 // Example of Producer-Consumer pattern using Condition Variables in Java
 // This example demonstrates a producer thread that reads pairs of matrices from a file
-// and a consumer thread that multiplies these matrices and writes the results to another file.
+// and consumer threads that multiply these matrices and write the results to another file.
 // A thread-safe queue is used to facilitate communication between the producer and consumer threads.
 // Backpressure is implemented to prevent the queue from growing indefinitely.
-// The producer reads matrices from "matrices.txt" and the consumer writes results to "matrices-result.txt".
+// The producer reads matrices from "matrices.txt" and the consumers write results to "matrices-result.txt".
+// Several consumers multiply pairs in parallel: the producer parses the pairs, multiplying and formatting
+// run on the consumers. Every pair is tagged with its sequence number,
+// the reordering writer holds back results that finish early so the output has the order of the input.
+// The input may also be a binary matrix file (MatricesGenerator --format=binary or MatricesConverter),
+// its pairs are read as floats without any parsing.
+// Text is parsed by TextMatrixReader and results are formatted by TextMatrixFormat straight from and into bytes,
+// no String is created per number.
+// The pairs are handed over by a lock-free ring buffer (RingBufferQueue) by default,
+// --queue=lock selects the ReentrantLock and condition variables queue (ThreadSafeQueue).
+// N is taken from the input file, --n checks it. The product is computed by a MatrixKernel on flat arrays,
+// the i-k-j, blocked and Vector API kernels give the same results as the naive loop. For a few very large matrices
+// --kernel-parallelism splits every single product into bands of rows on a fork/join pool.
+// Usage: --consumers=<cores> --queue-capacity=64 --queue=ring|lock --wait-strategy=park|yield|spin
+//        --kernel=auto|naive|ikj|blocked|vector --block-size=64 --kernel-parallelism=1 --n=<N of the input>
+//        --input=matrices.txt --output=matrices-result.txt
+// Like in QueueHandoffBenchmark, spinning only pays off when every thread has a core: spin falls back to yield
+// when the producer and consumers outnumber the cores, which they do with the default number of consumers
 public class MainApplication {
 
     private static final String INPUT_FILE = "matrices.txt";
     private static final String OUTPUT_FILE = "matrices-result.txt";
-    private static final int N = 10;
 
     public static void main(String[] args) throws IOException {
-        ThreadSafeQueue threadSafeQueue = new ThreadSafeQueue();
-        File inputFile = new File(INPUT_FILE);
-        File outputFile = new File(OUTPUT_FILE);
+        String input = INPUT_FILE;
+        String output = OUTPUT_FILE;
+        int consumers = Runtime.getRuntime().availableProcessors();
+        int queueCapacity = 64;
+        String queueType = "ring";
+        WaitStrategy waitStrategy = WaitStrategy.PARK;
+        String kernelName = "auto";
+        int blockSize = BlockedMatrixKernel.DEFAULT_BLOCK_SIZE;
+        int kernelParallelism = 1;
+        int expectedN = 0;
 
-        MatricesReaderProducer producer = new MatricesReaderProducer(new FileReader(inputFile), threadSafeQueue);
-        MatricesMultiplierConsumer consumer = new MatricesMultiplierConsumer(threadSafeQueue, new FileWriter(outputFile));
+        for (CommandLineOption option : CommandLineOption.parse(args)) {
+            String value = option.value();
+            switch (option.name()) {
+                case "input" -> input = value;
+                case "output" -> output = value;
+                case "consumers" -> consumers = Integer.parseInt(value);
+                case "queue-capacity" -> queueCapacity = Integer.parseInt(value);
+                case "queue" -> queueType = value;
+                case "wait-strategy" -> waitStrategy = WaitStrategy.fromString(value);
+                case "kernel" -> kernelName = value;
+                case "block-size" -> blockSize = Integer.parseInt(value);
+                case "kernel-parallelism" -> kernelParallelism = Integer.parseInt(value);
+                case "n" -> expectedN = Integer.parseInt(value);
+                default -> throw option.unknown();
+            }
+        }
+        if (consumers < 1 || queueCapacity < 1 || kernelParallelism < 1) {
+            throw new IllegalArgumentException("Consumers, queue capacity and kernel parallelism must be positive");
+        }
+        int cores = Runtime.getRuntime().availableProcessors();
+        if (waitStrategy == WaitStrategy.SPIN && consumers + 1 > cores) {
+            System.out.println("Spinning needs a core per thread, " + consumers + " consumers and the producer on "
+                    + cores + " cores wait with yield instead");
+            waitStrategy = WaitStrategy.YIELD;
+        }
 
-        Long startTime = System.currentTimeMillis();
+        HandoffQueue<MatricesPair> threadSafeQueue = switch (queueType) {
+            case "ring" -> new RingBufferQueue<>(queueCapacity, waitStrategy);
+            case "lock" -> new ThreadSafeQueue<>(queueCapacity);
+            default -> throw new IllegalArgumentException("Unknown queue: " + queueType);
+        };
+        MatrixPairReader reader = MatrixPairReader.open(Paths.get(input));
+        int n = reader.getN();
+        if (n == 0 || expectedN != 0 && n != expectedN) {
+            reader.close();
+            throw new IllegalArgumentException(n == 0 ? "No matrices in " + input
+                    : "Expected " + expectedN + "x" + expectedN + " matrices but " + input + " has " + n + "x" + n);
+        }
+        MatrixKernel kernel = MatrixKernels.forName(kernelName, blockSize, n);
+        if (kernelParallelism > 1) {
+            kernel = new ParallelMatrixKernel(kernel, ParallelMatrixKernel.createPool(kernelParallelism));
+        }
+        // Results may run ahead of the oldest unwritten one by as many pairs as are queued or being multiplied
+        ReorderingWriter writer = new ReorderingWriter(new BufferedOutputStream(new FileOutputStream(output), 1 << 16),
+                queueCapacity + consumers);
+        Thread producer = new MatricesReaderProducer(reader, threadSafeQueue, writer, n);
+        List<MatricesMultiplierConsumer> consumerThreads = new ArrayList<>();
+        for (int i = 0; i < consumers; i++) {
+            consumerThreads.add(new MatricesMultiplierConsumer(threadSafeQueue, writer, kernel, n));
+        }
+
+        long startTime = System.currentTimeMillis();
         producer.start();
-        consumer.start();
+        for (MatricesMultiplierConsumer consumer : consumerThreads) {
+            consumer.start();
+        }
         try {
             producer.join();
-            consumer.join();
+            for (MatricesMultiplierConsumer consumer : consumerThreads) {
+                consumer.join();
+            }
         } catch (InterruptedException e) {
         }
-        Long endTime = System.currentTimeMillis();
-        System.out.println("Total time: " + (endTime - startTime) + " ms");
+        // Throws when a pair could not be read or multiplied, main then exits with an error
+        writer.close();
+        long endTime = System.currentTimeMillis();
+        System.out.println("Total time: " + (endTime - startTime) + " ms with " + consumers + " consumers, "
+                + (queueType.equals("ring") ? "ring buffer (" + waitStrategy + ")" : "lock queue") + ", "
+                + MatrixKernels.describe(kernel) + " kernel, " + writer.getWritten() + " results of " + n + "x" + n);
     }
 
-    // Consumer class that multiplies matrices and writes results to a file
+    // Consumer class that multiplies matrices and passes the results to the writer
+    // The pair arrives in the flat row-major arrays the kernel works on, nothing is copied
     private static class MatricesMultiplierConsumer extends Thread {
-        private ThreadSafeQueue threadSafeQueue;
-        private FileWriter fileWriter;
+        private final HandoffQueue<MatricesPair> threadSafeQueue;
+        private final ReorderingWriter writer;
+        private final MatrixKernel kernel;
+        private final int n;
+        private final float[] result;
+        // Every result is formatted here first, only the used bytes are copied for the writer
+        // The array grows to the longest result, a matrix sized worst case would be 50 bytes per value
+        private byte[] formatted;
 
-        public MatricesMultiplierConsumer(ThreadSafeQueue threadSafeQueue, FileWriter fileWriter) {
+        public MatricesMultiplierConsumer(HandoffQueue<MatricesPair> threadSafeQueue, ReorderingWriter writer,
+                                          MatrixKernel kernel, int n) {
             this.threadSafeQueue = threadSafeQueue;
-            this.fileWriter = fileWriter;
-        }
-
-        // Save the resulting matrix to the output file
-        private static void saveMatrixToFile(FileWriter fileWriter, float[][] matrix) throws IOException {
-            for (int r = 0; r < N; r++) {
-                StringJoiner stringJoiner = new StringJoiner(", ");
-                for (int c = 0; c < N; c++) {
-                    stringJoiner.add(String.format("%.2f", matrix[r][c]));
-                }
-                fileWriter.write(stringJoiner.toString());
-                fileWriter.write('\n');
-            }
-            fileWriter.write('\n');
+            this.writer = writer;
+            this.kernel = kernel;
+            this.n = n;
+            this.result = new float[n * n];
+            this.formatted = new byte[TextMatrixFormat.maxRowBytes(n) + 1];
         }
 
         @Override
@@ -69,144 +154,175 @@ public class MainApplication {
             while (true) {
                 MatricesPair matricesPair = threadSafeQueue.remove();
                 if (matricesPair == null) {
-                    System.out.println("No more matrices to process. Terminating consumer.");
                     break;
                 }
 
-                float[][] result = multiplyMatrices(matricesPair.matrixA, matricesPair.matrixB);
-
                 try {
-                    saveMatrixToFile(fileWriter, result);
-                } catch (IOException e) {
+                    kernel.multiply(matricesPair.matrixA, matricesPair.matrixB, result, n);
+                    int length = formatResult();
+                    writer.write(matricesPair.sequence, Arrays.copyOf(formatted, length));
+                } catch (IOException | RuntimeException e) {
+                    // Later results can never be written, the queue is still drained so the producer can finish
+                    writer.fail(e);
+                } catch (InterruptedException e) {
+                    return;
                 }
             }
-
-            try {
-                fileWriter.flush();
-                fileWriter.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
         }
 
-        // Multiply two matrices
-        private float[][] multiplyMatrices(float[][] matrixA, float[][] matrixB) {
-            float[][] result = new float[N][N];
-            for (int r = 0; r < N; r++) {
-                for (int c = 0; c < N; c++) {
-                    for (int k = 0; k < N; k++) {
-                        result[r][c] += matrixA[r][k] * matrixB[k][c];
-                    }
+        // Format the result as it is saved in the output file, returns the number of bytes
+        private int formatResult() {
+            int rowBytes = TextMatrixFormat.maxRowBytes(n);
+            int length = 0;
+            for (int r = 0; r < n; r++) {
+                // One more byte for the empty line after the last row
+                if (formatted.length - length < rowBytes + 1) {
+                    formatted = Arrays.copyOf(formatted, Math.max(formatted.length * 2, length + rowBytes + 1));
                 }
+                length = TextMatrixFormat.formatRow(result, r * n, n, formatted, length);
             }
-            return result;
+            formatted[length++] = '\n';
+            return length;
         }
     }
 
-    // Producer class that reads pairs of matrices from a file
+    // Producer class that reads pairs of matrices from a text or binary matrices file
+    // TextMatrixReader parses the numbers in place from the read buffer, fast enough for one producer
+    // to keep several consumers busy
     private static class MatricesReaderProducer extends Thread {
-        private Scanner scanner;
-        private ThreadSafeQueue threadSafeQueue;
+        private final MatrixPairReader reader;
+        private final HandoffQueue<MatricesPair> threadSafeQueue;
+        private final ReorderingWriter writer;
+        private final int n;
+        private long sequence = 0;
 
-        public MatricesReaderProducer(FileReader fileReader, ThreadSafeQueue threadSafeQueue) {
-            this.scanner = new Scanner(fileReader);
+        public MatricesReaderProducer(MatrixPairReader reader, HandoffQueue<MatricesPair> threadSafeQueue,
+                                      ReorderingWriter writer, int n) {
+            this.reader = reader;
             this.threadSafeQueue = threadSafeQueue;
+            this.writer = writer;
+            this.n = n;
         }
 
         @Override
         public void run() {
-            while (true) {
-                float[][] matrixA = readMatrix();
-                float[][] matrixB = readMatrix();
-                if (matrixA == null || matrixB == null) {
-                    threadSafeQueue.terminate();
-                    System.out.println("No more matrices to read. Terminating producer.");
-                    return;
-                }
-
-                MatricesPair matricesPair = new MatricesPair();
-                matricesPair.matrixA = matrixA;
-                matricesPair.matrixB = matrixB;
-                threadSafeQueue.add(matricesPair);
-            }
-        }
+            try {
+                while (true) {
+                    // New arrays for every pair, the consumers keep them until the result is computed
+                    // The reader fills the flat row-major layout of the kernels directly
+                    float[] matrixA = new float[n * n];
+                    float[] matrixB = new float[n * n];
+                    if (!reader.readPair(matrixA, matrixB)) {
+                        System.out.println("No more matrices to read. Terminating producer.");
+                        return;
+                    }
 
-        // Read a single matrix from the input file
-        private float[][] readMatrix() {
-            float[][] matrix = new float[N][N];
-            for (int r = 0; r < N; r++) {
-                if (!scanner.hasNext()) {
-                    return null;
+                    MatricesPair matricesPair = new MatricesPair();
+                    matricesPair.sequence = sequence++;
+                    matricesPair.matrixA = matrixA;
+                    matricesPair.matrixB = matrixB;
+                    threadSafeQueue.add(matricesPair);
                 }
-                String[] line = scanner.nextLine().split(",");
-                for (int c = 0; c < N; c++) {
-                    matrix[r][c] = Float.valueOf(line[c]);
+            } catch (IOException | RuntimeException e) {
+                // The rest of the input is lost, the output must not look complete
+                writer.fail(e);
+            } catch (InterruptedException e) {
+            } finally {
+                threadSafeQueue.terminate();
+                try {
+                    reader.close();
+                } catch (IOException e) {
                 }
             }
-            scanner.nextLine();
-            return matrix;
         }
     }
 
-    // Thread-safe queue implementation using synchronized methods and wait/notify
-    private static class ThreadSafeQueue {
-        private Queue<MatricesPair> queue = new LinkedList<>();
-        private boolean isEmpty = true;
-        private boolean isTerminate = false;
+    // Writes results in sequence order no matter in which order the consumers finish them
+    // A result that is next in line is written at once together with the results waiting behind it,
+    // others are kept until their turn. A consumer waits when its result is more than maxPending ahead,
+    // so one slow pair cannot make the others pile up in memory; the consumer holding the next
+    // sequence number never waits, so the writer always makes progress
+    // When a pair fails the sequence has a gap that is never filled, all waiting and later writes fail instead
+    // and close() reports the failure
+    private static class ReorderingWriter {
+        private final OutputStream output;
+        private final int maxPending;
+        private final Map<Long, byte[]> pending = new HashMap<>();
+        private final Lock lock = new ReentrantLock();
+        private final Condition advanced = lock.newCondition();
+        private long nextSequence = 0;
+        private Exception failure = null;
 
-        //Introducing a max capacity for the queue to prevent unlimited growth
-        private static final int MAX_CAPACITY = 5;
+        public ReorderingWriter(OutputStream output, int maxPending) {
+            this.output = output;
+            this.maxPending = maxPending;
+        }
 
-        // Add an item to the queue
-        public synchronized void add(MatricesPair matricesPair) {
-            while (queue.size() == MAX_CAPACITY) {
-                try {
-                    wait();
-                } catch (InterruptedException e) {
+        public void write(long sequence, byte[] text) throws IOException, InterruptedException {
+            lock.lock();
+            try {
+                while (failure == null && sequence - nextSequence >= maxPending) {
+                    advanced.await();
+                }
+                if (failure != null) {
+                    throw new IOException("Output stopped at result " + nextSequence, failure);
+                }
+                if (sequence != nextSequence) {
+                    pending.put(sequence, text);
+                    return;
+                }
+                output.write(text);
+                nextSequence++;
+                for (byte[] next = pending.remove(nextSequence); next != null; next = pending.remove(nextSequence)) {
+                    output.write(next);
+                    nextSequence++;
                 }
+                advanced.signalAll();
+            } finally {
+                lock.unlock();
             }
-            queue.add(matricesPair);
-            isEmpty = false;
-            notify();
         }
 
-        // Remove and return an item from the queue
-        public synchronized MatricesPair remove() {
-            // Wait while the queue is empty and not terminated
-            MatricesPair matricesPair = null;
-            while (isEmpty && !isTerminate) {
-                try {
-                    wait();
-                } catch (InterruptedException e) {
+        // Stop writing, the first failure is reported
+        public void fail(Exception e) {
+            lock.lock();
+            try {
+                if (failure == null) {
+                    failure = e;
                 }
+                advanced.signalAll();
+            } finally {
+                lock.unlock();
             }
-            if (queue.size() == 1) {
-                isEmpty = true;
-            }
-
-            if (queue.size() == 0 && isTerminate) {
-                return null;
-            }
-            System.out.println("queue size: " + queue.size());
+        }
 
-            // Remove and return the next item from the queue
-            // Notify producers if the queue was full
-            matricesPair =  queue.remove();
-            if (queue.size() == MAX_CAPACITY - 1) {
-                notifyAll();
+        public long getWritten() {
+            lock.lock();
+            try {
+                return nextSequence;
+            } finally {
+                lock.unlock();
             }
-            return matricesPair;
         }
 
-        // Terminate the queue to signal no more items will be added
-        public synchronized void terminate() {
-            isTerminate = true;
-            notifyAll();
+        // Throws when reading or multiplying a pair failed, the output is then incomplete
+        public void close() throws IOException {
+            lock.lock();
+            try {
+                output.close();
+                if (failure != null) {
+                    throw new IOException("Output is incomplete, only the first " + nextSequence + " results were written",
+                            failure);
+                }
+            } finally {
+                lock.unlock();
+            }
         }
     }
 
     private static class MatricesPair {
-        public float[][] matrixA;
-        public float[][] matrixB;
+        public long sequence;
+        public float[] matrixA;
+        public float[] matrixB;
     }
 }
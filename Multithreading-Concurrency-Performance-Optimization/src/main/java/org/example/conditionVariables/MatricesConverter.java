@@ -0,0 +1,54 @@
+package org.example.conditionVariables;
+
+import org.example.cli.CommandLineOption;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+// Converts a text matrices file (as written by MatricesGenerator) into the BinaryMatrixFormat
+// The text format has no header: N is the number of values in the first line,
+// matrices are N lines of comma separated values followed by an empty line, consecutive matrices form a pair
+// Usage: --input=matrices.txt --output=matrices.bin
+public class MatricesConverter {
+
+    public static void main(String[] args) throws IOException {
+        String input = "matrices.txt";
+        String output = "matrices.bin";
+
+        for (CommandLineOption option : CommandLineOption.parse(args)) {
+            String value = option.value();
+            switch (option.name()) {
+                case "input" -> input = value;
+                case "output" -> output = value;
+                default -> throw option.unknown();
+            }
+        }
+
+        long startTime = System.currentTimeMillis();
+        long pairs = convert(Paths.get(input), Paths.get(output));
+        long endTime = System.currentTimeMillis();
+        System.out.println("Converted " + pairs + " pairs from " + input + " to " + output + " in " + (endTime - startTime)
+                + " ms, " + Files.size(Paths.get(input)) + " -> " + Files.size(Paths.get(output)) + " bytes");
+    }
+
+    // Convert the text file, returns the number of pairs written
+    public static long convert(Path textFile, Path binaryFile) throws IOException {
+        try (TextMatrixReader reader = new TextMatrixReader(textFile)) {
+            int n = reader.getN();
+            if (n == 0) {
+                throw new IOException("Empty matrices file: " + textFile);
+            }
+
+            try (BinaryMatrixWriter writer = new BinaryMatrixWriter(binaryFile, n)) {
+                float[] matrixA = new float[n * n];
+                float[] matrixB = new float[n * n];
+                while (reader.readPair(matrixA, matrixB)) {
+                    writer.writePair(matrixA, matrixB);
+                }
+                return writer.getPairCount();
+            }
+        }
+    }
+}
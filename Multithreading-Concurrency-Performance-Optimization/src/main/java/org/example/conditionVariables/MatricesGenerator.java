@@ -1,58 +1,72 @@
 package org.example.conditionVariables;
 
-import java.io.File;
-import java.io.FileWriter;
+import org.example.cli.CommandLineOption;
+
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.Random;
-import java.util.StringJoiner;
 
+// Writes random matrix pairs for MainApplication
+// Usage: --format=text|binary --output=matrices.txt --pairs=100000 --n=10
+// The binary format (BinaryMatrixFormat) keeps the exact floats and is read without parsing
 public class MatricesGenerator {
 
     private static final String OUTPUT_FILE = "matrices.txt";
-    private static final int N = 10;
+    private static final int DEFAULT_N = 10;
     private static final int NUMBER_OF_MATRIX_PAIRS = 100000;
 
     public static void main(String[] args) throws IOException {
-        File file = new File(OUTPUT_FILE);
-        FileWriter fileWriter = new FileWriter(file);
-        createMatrices(fileWriter);
-        fileWriter.flush();
-        fileWriter.close();
-    }
+        String output = OUTPUT_FILE;
+        String format = "text";
+        int pairs = NUMBER_OF_MATRIX_PAIRS;
+        int n = DEFAULT_N;
 
-    private static float [] createRow(Random random) {
-        float [] row = new float[N];
-        for (int i = 0; i < N; i++) {
-            row[i] = random.nextFloat() * random.nextInt(100);
+        for (CommandLineOption option : CommandLineOption.parse(args)) {
+            String value = option.value();
+            switch (option.name()) {
+                case "output" -> output = value;
+                case "format" -> format = value;
+                case "pairs" -> pairs = Integer.parseInt(value);
+                case "n" -> n = Integer.parseInt(value);
+                default -> throw option.unknown();
+            }
+        }
+
+        switch (format) {
+            case "text" -> {
+                try (TextMatrixWriter writer = new TextMatrixWriter(Paths.get(output), n)) {
+                    createMatrices(writer, pairs, n);
+                }
+            }
+            case "binary" -> {
+                try (BinaryMatrixWriter writer = new BinaryMatrixWriter(Paths.get(output), n)) {
+                    createMatrices(writer, pairs, n);
+                }
+            }
+            default -> throw new IllegalArgumentException("Unknown format: " + format);
         }
-        return row;
     }
 
-    private static float[][] createMatrix(Random random) {
-        float [][] matrix = new float[N][N];
-        for (int i = 0; i < N; i++) {
-            matrix[i] = createRow(random);
+    // Row-major N x N matrix, the layout the writers and the kernels use
+    private static float[] createMatrix(Random random, int n) {
+        float[] matrix = new float[n * n];
+        for (int i = 0; i < matrix.length; i++) {
+            matrix[i] = random.nextFloat() * random.nextInt(100);
         }
         return matrix;
     }
 
-    private static void saveMatrixToFile(FileWriter fileWriter, float[][] matrix) throws IOException {
-        for (int r = 0; r < N; r++) {
-            StringJoiner stringJoiner = new StringJoiner(", ");
-            for(int c = 0; c < N; c++) {
-                stringJoiner.add(String.format("%.2f", matrix[r][c]));
-            }
-            fileWriter.write(stringJoiner.toString());
-            fileWriter.write('\n');
+    private static void createMatrices(TextMatrixWriter writer, int pairs, int n) throws IOException {
+        Random random = new Random();
+        for (int i = 0; i < pairs * 2; i++) {
+            writer.writeMatrix(createMatrix(random, n));
         }
-        fileWriter.write('\n');
     }
 
-    private static void createMatrices(FileWriter fileWriter) throws IOException {
+    private static void createMatrices(BinaryMatrixWriter writer, int pairs, int n) throws IOException {
         Random random = new Random();
-        for (int i = 0; i< NUMBER_OF_MATRIX_PAIRS * 2; i++) {
-            float[][] matrix = createMatrix(random);
-            saveMatrixToFile(fileWriter, matrix);
+        for (int i = 0; i < pairs; i++) {
+            writer.writePair(createMatrix(random, n), createMatrix(random, n));
         }
     }
 
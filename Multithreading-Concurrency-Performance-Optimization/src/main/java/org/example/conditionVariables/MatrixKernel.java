@@ -0,0 +1,15 @@
+package org.example.conditionVariables;
+
+// Multiplies square N x N matrices stored flat in row-major order: element (r, c) is at index r * n + c
+// A kernel computes the rows fromRow until toRow of the result, so a parallel kernel can hand out bands of rows
+// Every kernel sums the products of an element in the order k = 0 .. n - 1 with a separate multiply and add,
+// exactly like the naive loop, so all kernels give bit-identical results whatever their loop order
+public interface MatrixKernel {
+
+    // c = a * b for the given rows of c, the previous content of these rows is overwritten
+    void multiply(float[] a, float[] b, float[] c, int n, int fromRow, int toRow);
+
+    default void multiply(float[] a, float[] b, float[] c, int n) {
+        multiply(a, b, c, n, 0, n);
+    }
+}
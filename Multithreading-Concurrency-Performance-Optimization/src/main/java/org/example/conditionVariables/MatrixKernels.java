@@ -0,0 +1,89 @@
+package org.example.conditionVariables;
+
+// Selects the matrix kernel at runtime
+// naive   - the r-c-k triple loop, the reference for the others
+// ikj     - the i-k-j loop order, sequential access to b and the result
+// blocked - i-k-j on cache sized tiles
+// vector  - blocked with the Vector API inner loops, fails when it is not available
+// auto    - depends on N: vector when the jdk.incubator.vector module is resolved (--add-modules jdk.incubator.vector),
+//           the CPU has at least 4 float lanes and a row has at least one vector of them, otherwise blocked,
+//           and ikj for matrices below 16 x 16 where the tiles only add overhead
+public final class MatrixKernels {
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String VECTOR_KERNEL_CLASS = "org.example.conditionVariables.VectorMatrixKernel";
+
+    private static final int MIN_BLOCKED_N = 16;
+
+    private static final boolean VECTOR_AVAILABLE = isVectorSupported();
+
+    private MatrixKernels() {
+    }
+
+    // Kernel for N x N matrices
+    public static MatrixKernel forName(String name, int blockSize, int n) {
+        return switch (name.toLowerCase()) {
+            case "naive" -> NaiveMatrixKernel.INSTANCE;
+            case "ikj" -> IkjMatrixKernel.INSTANCE;
+            case "blocked" -> new BlockedMatrixKernel(blockSize);
+            case "auto" -> {
+                if (VECTOR_AVAILABLE && n >= VectorMatrixKernel.lanes()) {
+                    yield newVectorKernel(blockSize);
+                }
+                yield n >= MIN_BLOCKED_N ? new BlockedMatrixKernel(blockSize) : IkjMatrixKernel.INSTANCE;
+            }
+            case "vector" -> {
+                if (!VECTOR_AVAILABLE) {
+                    throw new IllegalArgumentException("Vector kernel is not available, start the JVM with --add-modules " + VECTOR_MODULE);
+                }
+                yield newVectorKernel(blockSize);
+            }
+            default -> throw new IllegalArgumentException("Unknown matrix kernel: " + name);
+        };
+    }
+
+    public static boolean isVectorAvailable() {
+        return VECTOR_AVAILABLE;
+    }
+
+    // Name of the kernel for reports, e.g. "vector (8 lanes, 64 block)" or "fork/join 8 x blocked (64 block)"
+    public static String describe(MatrixKernel kernel) {
+        if (kernel instanceof ParallelMatrixKernel parallel) {
+            return "fork/join " + parallel.getParallelism() + " x " + describe(parallel.getKernel());
+        }
+        if (kernel instanceof BlockedMatrixKernel blocked) {
+            return "blocked (" + blocked.getBlockSize() + " block)";
+        }
+        if (kernel == NaiveMatrixKernel.INSTANCE) {
+            return "naive";
+        }
+        if (kernel == IkjMatrixKernel.INSTANCE) {
+            return "ikj";
+        }
+        if (VECTOR_AVAILABLE && kernel.getClass().getName().equals(VECTOR_KERNEL_CLASS)) {
+            VectorMatrixKernel vector = (VectorMatrixKernel) kernel;
+            return "vector (" + VectorMatrixKernel.lanes() + " lanes, " + vector.getBlockSize() + " block)";
+        }
+        return kernel.getClass().getSimpleName();
+    }
+
+    // The kernel class is only touched when the module is present, otherwise loading it would throw NoClassDefFoundError
+    private static boolean isVectorSupported() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            return false;
+        }
+        try {
+            Class<?> kernelClass = Class.forName(VECTOR_KERNEL_CLASS);
+            return (boolean) kernelClass.getDeclaredMethod("isSupported").invoke(null);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return false;
+        }
+    }
+
+    private static MatrixKernel newVectorKernel(int blockSize) {
+        try {
+            return (MatrixKernel) Class.forName(VECTOR_KERNEL_CLASS).getDeclaredConstructor(int.class).newInstance(blockSize);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create the vector kernel", e);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.example.conditionVariables;
+
+import org.example.cli.CommandLineOption;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+// Compares the matrix kernels on random N x N matrices of every given size
+// Reports the time per product and GFLOP/s (2 * N^3 operations) after warm-up runs, and the largest difference
+// to the naive kernel relative to the largest element of the result. A kernel more than the tolerance away fails
+// (the kernels add in the same order as the naive loop, the difference is expected to be exactly 0)
+// The kernel auto selects for the size is also run with fork/join bands of rows on a pool of the given parallelism
+// Run with --add-modules jdk.incubator.vector to include the Vector API kernel
+// Usage: --sizes=128,512,1024 --kernels=naive,ikj,blocked,vector --block-size=64 --parallelism=<cores> --iterations=3
+public class MatrixMultiplyBenchmark {
+    private static final double TOLERANCE = 1e-5;
+
+    public static void main(String[] args) {
+        String sizes = "128,512,1024";
+        String kernelNames = MatrixKernels.isVectorAvailable() ? "naive,ikj,blocked,vector" : "naive,ikj,blocked";
+        int blockSize = BlockedMatrixKernel.DEFAULT_BLOCK_SIZE;
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        int iterations = 3;
+
+        for (CommandLineOption option : CommandLineOption.parse(args)) {
+            String value = option.value();
+            switch (option.name()) {
+                case "sizes" -> sizes = value;
+                case "kernels" -> kernelNames = value;
+                case "block-size" -> blockSize = Integer.parseInt(value);
+                case "parallelism" -> parallelism = Integer.parseInt(value);
+                case "iterations" -> iterations = Integer.parseInt(value);
+                default -> throw option.unknown();
+            }
+        }
+
+        ForkJoinPool pool = ParallelMatrixKernel.createPool(parallelism);
+        Random random = new Random(42);
+        for (String size : sizes.split(",")) {
+            int n = Integer.parseInt(size.trim());
+            float[] a = randomMatrix(random, n);
+            float[] b = randomMatrix(random, n);
+            float[] expected = new float[n * n];
+            NaiveMatrixKernel.INSTANCE.multiply(a, b, expected, n);
+
+            System.out.println(n + "x" + n);
+            for (String name : kernelNames.split(",")) {
+                report(MatrixKernels.forName(name.trim(), blockSize, n), a, b, expected, n, iterations);
+            }
+            report(new ParallelMatrixKernel(MatrixKernels.forName("auto", blockSize, n), pool), a, b, expected, n, iterations);
+        }
+    }
+
+    private static float[] randomMatrix(Random random, int n) {
+        float[] matrix = new float[n * n];
+        for (int i = 0; i < matrix.length; i++) {
+            matrix[i] = random.nextFloat() * 100;
+        }
+        return matrix;
+    }
+
+    private static void report(MatrixKernel kernel, float[] a, float[] b, float[] expected, int n, int iterations) {
+        float[] result = new float[n * n];
+        // Warm-up, a few hundred million operations so the JIT has compiled the loops
+        long warmups = Math.max(1, 200_000_000L / (2L * n * n * n));
+        for (long i = 0; i < warmups; i++) {
+            kernel.multiply(a, b, result, n);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            kernel.multiply(a, b, result, n);
+        }
+        long duration = (System.nanoTime() - start) / iterations;
+
+        double largest = 0;
+        double difference = 0;
+        for (int i = 0; i < expected.length; i++) {
+            largest = Math.max(largest, Math.abs(expected[i]));
+            difference = Math.max(difference, Math.abs(expected[i] - result[i]));
+        }
+        double relativeDifference = largest == 0 ? difference : difference / largest;
+        System.out.printf("  %-40s %10.2f ms %8.2f GFLOP/s   difference %.2e%n", MatrixKernels.describe(kernel),
+                duration / 1e6, 2.0 * n * n * n / duration, relativeDifference);
+        if (!(relativeDifference <= TOLERANCE)) {
+            throw new IllegalStateException(MatrixKernels.describe(kernel) + " differs from the naive kernel by "
+                    + relativeDifference);
+        }
+    }
+}
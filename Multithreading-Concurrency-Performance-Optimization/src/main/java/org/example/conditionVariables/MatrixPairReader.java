@@ -0,0 +1,22 @@
+package org.example.conditionVariables;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+// Source of matrix pairs, text (TextMatrixReader) or binary (BinaryMatrixReader)
+public interface MatrixPairReader extends AutoCloseable {
+
+    // Read the next pair into the given N x N matrices (row-major, N * N floats), false when all pairs have been read
+    boolean readPair(float[] matrixA, float[] matrixB) throws IOException;
+
+    // Size of the matrices in the file
+    int getN();
+
+    @Override
+    void close() throws IOException;
+
+    // Reader for the format of the file, binary files are recognized by their magic
+    static MatrixPairReader open(Path path) throws IOException {
+        return BinaryMatrixFormat.isBinary(path) ? new BinaryMatrixReader(path) : new TextMatrixReader(path);
+    }
+}
@@ -0,0 +1,20 @@
+package org.example.conditionVariables;
+
+// Reference kernel, the r-c-k triple loop: the innermost loop walks down a column of b,
+// one cache line per element, so for large N almost every access to b is a cache miss
+public class NaiveMatrixKernel implements MatrixKernel {
+    public static final NaiveMatrixKernel INSTANCE = new NaiveMatrixKernel();
+
+    @Override
+    public void multiply(float[] a, float[] b, float[] c, int n, int fromRow, int toRow) {
+        for (int r = fromRow; r < toRow; r++) {
+            for (int col = 0; col < n; col++) {
+                float sum = 0;
+                for (int k = 0; k < n; k++) {
+                    sum += a[r * n + k] * b[k * n + col];
+                }
+                c[r * n + col] = sum;
+            }
+        }
+    }
+}
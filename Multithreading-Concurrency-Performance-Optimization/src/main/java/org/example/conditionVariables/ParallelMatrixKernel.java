@@ -0,0 +1,83 @@
+package org.example.conditionVariables;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+// Splits one multiplication into bands of result rows on a ForkJoinPool, every band is computed by the given kernel
+// The rows are split in halves recursively, idle workers steal the larger halves. A band is not split further
+// once it has fewer than MIN_TASK_FLOPS of work or is a 4 * parallelism-th of the rows: small matrices
+// (e.g. N = 10) run on the calling thread without any task
+// Every band reads all of b, the row tiles of the blocked kernels keep reusing it from the cache
+public class ParallelMatrixKernel implements MatrixKernel {
+    private static final long MIN_TASK_FLOPS = 1 << 22;
+
+    private final MatrixKernel kernel;
+    private final ForkJoinPool pool;
+
+    public ParallelMatrixKernel(MatrixKernel kernel, ForkJoinPool pool) {
+        this.kernel = kernel;
+        this.pool = pool;
+    }
+
+    // Pool with daemon worker threads, so an unused pool never keeps the JVM alive
+    public static ForkJoinPool createPool(int parallelism) {
+        return new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("matrix-worker-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    @Override
+    public void multiply(float[] a, float[] b, float[] c, int n, int fromRow, int toRow) {
+        long rowFlops = 2L * n * n;
+        int minRows = (int) Math.max((MIN_TASK_FLOPS + rowFlops - 1) / rowFlops,
+                ((long) toRow - fromRow + 4L * pool.getParallelism() - 1) / (4L * pool.getParallelism()));
+        if (toRow - fromRow <= minRows) {
+            kernel.multiply(a, b, c, n, fromRow, toRow);
+            return;
+        }
+        pool.invoke(new RowsTask(a, b, c, n, fromRow, toRow, minRows));
+    }
+
+    public MatrixKernel getKernel() {
+        return kernel;
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    private class RowsTask extends RecursiveAction {
+        private final float[] a;
+        private final float[] b;
+        private final float[] c;
+        private final int n;
+        private final int fromRow;
+        private final int toRow;
+        private final int minRows;
+
+        RowsTask(float[] a, float[] b, float[] c, int n, int fromRow, int toRow, int minRows) {
+            this.a = a;
+            this.b = b;
+            this.c = c;
+            this.n = n;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.minRows = minRows;
+        }
+
+        @Override
+        protected void compute() {
+            if (toRow - fromRow <= minRows) {
+                kernel.multiply(a, b, c, n, fromRow, toRow);
+                return;
+            }
+            int middle = (fromRow + toRow) >>> 1;
+            invokeAll(new RowsTask(a, b, c, n, fromRow, middle, minRows),
+                    new RowsTask(a, b, c, n, middle, toRow, minRows));
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package org.example.conditionVariables;
+
+import org.example.cli.CommandLineOption;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+// Measures how many items per second one producer hands over to the consumers through each HandoffQueue:
+// the lock and condition variables queue (ThreadSafeQueue) and the ring buffer (RingBufferQueue) with every
+// wait strategy. The items are preallocated and the consumers only count them, so the queue is all that is measured
+// Each configuration runs the given number of rounds after one warm-up round and reports the best round,
+// the bytes the producer allocated per item and checks that every item was taken exactly once
+// A spinning thread keeps its core for the whole time slice, so SPIN is skipped when the producer and consumers
+// outnumber the cores: every handoff would wait for a time slice to end
+// Usage: --items=10000000 --capacity=64 --consumers=1,2,4 --rounds=5
+public class QueueHandoffBenchmark {
+
+    private static final int DISTINCT_ITEMS = 1 << 16;
+
+    public static void main(String[] args) throws InterruptedException {
+        long items = 10_000_000;
+        int capacity = 64;
+        String consumerCounts = "1,2,4";
+        int rounds = 5;
+
+        for (CommandLineOption option : CommandLineOption.parse(args)) {
+            String value = option.value();
+            switch (option.name()) {
+                case "items" -> items = Long.parseLong(value);
+                case "capacity" -> capacity = Integer.parseInt(value);
+                case "consumers" -> consumerCounts = value;
+                case "rounds" -> rounds = Integer.parseInt(value);
+                default -> throw option.unknown();
+            }
+        }
+
+        Integer[] values = new Integer[DISTINCT_ITEMS];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i;
+        }
+
+        System.out.println(Runtime.getRuntime().availableProcessors() + " cores, " + items + " items, capacity " + capacity);
+        System.out.printf("%-18s %9s %14s %18s%n", "queue", "consumers", "handoffs/s", "bytes/handoff");
+        for (String count : consumerCounts.split(",")) {
+            int consumers = Integer.parseInt(count.trim());
+            int queueCapacity = capacity;
+            run("lock", () -> new ThreadSafeQueue<>(queueCapacity), values, items, consumers, rounds);
+            for (WaitStrategy waitStrategy : WaitStrategy.values()) {
+                if (waitStrategy == WaitStrategy.SPIN && consumers + 1 > Runtime.getRuntime().availableProcessors()) {
+                    System.out.printf("%-18s %9d %14s%n", "ring spin", consumers, "skipped");
+                    continue;
+                }
+                run("ring " + waitStrategy.name().toLowerCase(), () -> new RingBufferQueue<>(queueCapacity, waitStrategy),
+                        values, items, consumers, rounds);
+            }
+        }
+    }
+
+    private static void run(String name, Supplier<HandoffQueue<Integer>> factory, Integer[] values, long items,
+                            int consumers, int rounds) throws InterruptedException {
+        double bestRate = 0;
+        double bytesPerItem = 0;
+        for (int round = 0; round <= rounds; round++) {
+            Result result = handOff(factory.get(), values, items, consumers);
+            // Round 0 is the warm-up
+            if (round > 0 && result.rate > bestRate) {
+                bestRate = result.rate;
+                bytesPerItem = result.bytesPerItem;
+            }
+        }
+        System.out.printf("%-18s %9d %14.0f %18.2f%n", name, consumers, bestRate, bytesPerItem);
+    }
+
+    private record Result(double rate, double bytesPerItem) {
+    }
+
+    private static Result handOff(HandoffQueue<Integer> queue, Integer[] values, long items, int consumers)
+            throws InterruptedException {
+        long[] counts = new long[consumers];
+        long[] sums = new long[consumers];
+        List<Thread> consumerThreads = new ArrayList<>();
+        for (int i = 0; i < consumers; i++) {
+            int consumer = i;
+            consumerThreads.add(new Thread(() -> {
+                long count = 0;
+                long sum = 0;
+                for (Integer item = queue.remove(); item != null; item = queue.remove()) {
+                    count++;
+                    sum += item;
+                }
+                counts[consumer] = count;
+                sums[consumer] = sum;
+            }));
+        }
+        long[] producerAllocated = new long[1];
+        Thread producer = new Thread(() -> {
+            long allocatedBefore = allocatedBytes();
+            try {
+                for (long i = 0; i < items; i++) {
+                    queue.add(values[(int) (i & (DISTINCT_ITEMS - 1))]);
+                }
+            } catch (InterruptedException e) {
+            } finally {
+                queue.terminate();
+            }
+            producerAllocated[0] = allocatedBytes() - allocatedBefore;
+        });
+
+        long start = System.nanoTime();
+        for (Thread consumer : consumerThreads) {
+            consumer.start();
+        }
+        producer.start();
+        producer.join();
+        for (Thread consumer : consumerThreads) {
+            consumer.join();
+        }
+        long duration = System.nanoTime() - start;
+
+        long count = 0;
+        long sum = 0;
+        for (int i = 0; i < consumers; i++) {
+            count += counts[i];
+            sum += sums[i];
+        }
+        long laps = items / DISTINCT_ITEMS;
+        long rest = items % DISTINCT_ITEMS;
+        long expectedSum = laps * (DISTINCT_ITEMS * (DISTINCT_ITEMS - 1L) / 2) + rest * (rest - 1) / 2;
+        if (count != items || sum != expectedSum) {
+            throw new IllegalStateException("Expected " + items + " items with sum " + expectedSum + " but consumers took "
+                    + count + " with sum " + sum);
+        }
+        return new Result(items * 1e9 / duration, (double) producerAllocated[0] / items);
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+}
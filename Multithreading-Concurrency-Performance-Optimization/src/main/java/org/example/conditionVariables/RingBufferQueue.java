@@ -0,0 +1,130 @@
+package org.example.conditionVariables;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+// Lock-free bounded queue for a single producer and any number of consumers, in the style of the Disruptor
+// The slots are preallocated in a ring and every slot carries a sequence number that tells whose turn it is:
+//   sequence s        slot is free for the producer to publish item s
+//   sequence s + 1    item s is published, the consumer that claims s may take it
+//   sequence s + size item s has been taken, the slot is free for item s + size
+// The producer owns its cursor and publishes with a release store of the slot sequence, no CAS at all.
+// Consumers claim the next item with one CAS on the shared consumer cursor, so an item is taken exactly once.
+// A handoff allocates nothing and takes no monitor. The two cursors are padded onto their own cache lines
+// (see the classes below), otherwise every publish by the producer would invalidate the line the consumers CAS.
+// Only one thread may call add and terminate
+public final class RingBufferQueue<T> extends RingBufferPadding2 implements HandoffQueue<T> {
+    private static final VarHandle SEQUENCES = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle CONSUMER_CURSOR;
+
+    static {
+        try {
+            CONSUMER_CURSOR = MethodHandles.lookup()
+                    .findVarHandle(RingBufferConsumerCursor.class, "consumerCursor", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final long[] sequences;
+    private final Object[] items;
+    private final int mask;
+    private final WaitStrategy waitStrategy;
+    // Number of items the producer published before terminating, consumers stop when they reach it
+    private volatile long endSequence = Long.MAX_VALUE;
+
+    // The capacity is rounded up to a power of two, so the slot of a sequence is a bit mask away,
+    // and to at least two: with a single slot "item s published" (s + 1) would read as "free for item s + 1"
+    public RingBufferQueue(int capacity, WaitStrategy waitStrategy) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30: " + capacity);
+        }
+        int size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        this.sequences = new long[size];
+        this.items = new Object[size];
+        this.mask = size - 1;
+        this.waitStrategy = waitStrategy;
+        for (int i = 0; i < size; i++) {
+            sequences[i] = i;
+        }
+    }
+
+    @Override
+    public void add(T item) throws InterruptedException {
+        long sequence = producerCursor;
+        int index = (int) sequence & mask;
+        // Wait until the consumer of the item one lap behind has taken it
+        for (int attempt = 0; (long) SEQUENCES.getAcquire(sequences, index) != sequence; attempt++) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            waitStrategy.idle(attempt);
+        }
+        items[index] = item;
+        SEQUENCES.setRelease(sequences, index, sequence + 1);
+        producerCursor = sequence + 1;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T remove() {
+        int attempt = 0;
+        while (true) {
+            long sequence = consumerCursor;
+            int index = (int) sequence & mask;
+            long slotSequence = (long) SEQUENCES.getAcquire(sequences, index);
+            if (slotSequence == sequence + 1) {
+                if (CONSUMER_CURSOR.compareAndSet(this, sequence, sequence + 1)) {
+                    T item = (T) items[index];
+                    items[index] = null;
+                    SEQUENCES.setRelease(sequences, index, sequence + mask + 1);
+                    return item;
+                }
+                // Another consumer claimed it, try the next item right away
+            } else if (slotSequence < sequence + 1) {
+                // Not published yet (or the consumer one lap behind has not released the slot)
+                if (sequence >= endSequence) {
+                    return null;
+                }
+                waitStrategy.idle(attempt++);
+            } else {
+                // A higher slot sequence means the cursor moved on since it was read
+                waitStrategy.idle(attempt++);
+            }
+        }
+    }
+
+    // Called by the producer after its last add
+    @Override
+    public void terminate() {
+        endSequence = producerCursor;
+    }
+
+    public int getCapacity() {
+        return items.length;
+    }
+}
+
+// The JVM may reorder the fields of a class but lays out superclass fields first,
+// so every cursor gets a class of its own between classes of padding
+abstract class RingBufferPadding0 {
+    long p00, p01, p02, p03, p04, p05, p06, p07;
+}
+
+// Written by the producer only
+abstract class RingBufferProducerCursor extends RingBufferPadding0 {
+    long producerCursor;
+}
+
+abstract class RingBufferPadding1 extends RingBufferProducerCursor {
+    long p10, p11, p12, p13, p14, p15, p16, p17;
+}
+
+// Next sequence to be claimed by a consumer, advanced with CAS
+abstract class RingBufferConsumerCursor extends RingBufferPadding1 {
+    volatile long consumerCursor;
+}
+
+abstract class RingBufferPadding2 extends RingBufferConsumerCursor {
+    long p20, p21, p22, p23, p24, p25, p26, p27;
+}
@@ -0,0 +1,94 @@
+package org.example.conditionVariables;
+
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+// Formats matrices exactly like String.format("%.2f") joined with ", " but straight into a byte array
+// String.format parses the pattern, creates a Formatter and several Strings for every value,
+// here a value is rounded with one multiplication and written digit by digit
+// Why the fast path is byte-identical to %.2f:
+//   a float has 24 significant bits, so (double) value * 100 is exact and rounding it half up gives the
+//   same hundredths as the Formatter, which rounds the decimal digits of the value half up
+//   (a float is never close enough to a .xx5 tie for its shortest decimal digits to round differently)
+//   the sign is kept for negative values rounding to zero ("-0.00"), like the Formatter does
+// NaN, infinities and values of 1e13 and more, and locales not using '.' and ASCII digits, go through String.format
+public final class TextMatrixFormat {
+    private static final float FAST_LIMIT = 1e13f;
+    private static final byte[] SEPARATOR = ", ".getBytes(StandardCharsets.US_ASCII);
+
+    private static final boolean FAST_FORMAT;
+    // Longest formatted float: sign, 39 integer digits, point and two decimals,
+    // up to three UTF-8 bytes per character when the locale does not use ASCII digits
+    private static final int MAX_VALUE_BYTES;
+
+    static {
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT));
+        FAST_FORMAT = symbols.getDecimalSeparator() == '.' && symbols.getZeroDigit() == '0' && symbols.getMinusSign() == '-';
+        MAX_VALUE_BYTES = FAST_FORMAT ? 48 : 144;
+    }
+
+    private TextMatrixFormat() {
+    }
+
+    // Upper bound of the bytes formatRow writes for a row of n values
+    public static int maxRowBytes(int n) {
+        return n * (MAX_VALUE_BYTES + SEPARATOR.length) + 1;
+    }
+
+    // Write the rows of the matrix (row-major, n * n floats) followed by an empty line, returns the offset after the last byte
+    // out needs n * maxRowBytes(n) + 1 bytes after offset
+    public static int formatMatrix(float[] matrix, int n, byte[] out, int offset) {
+        for (int r = 0; r < n; r++) {
+            offset = formatRow(matrix, r * n, n, out, offset);
+        }
+        out[offset++] = '\n';
+        return offset;
+    }
+
+    // Write n values starting at from joined with ", " and a newline, returns the offset after the last byte
+    public static int formatRow(float[] values, int from, int n, byte[] out, int offset) {
+        for (int c = 0; c < n; c++) {
+            if (c > 0) {
+                out[offset++] = ',';
+                out[offset++] = ' ';
+            }
+            offset = formatValue(values[from + c], out, offset);
+        }
+        out[offset++] = '\n';
+        return offset;
+    }
+
+    // Write the value with two decimals, returns the offset after the last byte
+    public static int formatValue(float value, byte[] out, int offset) {
+        if (!FAST_FORMAT || !(Math.abs(value) < FAST_LIMIT)) {
+            byte[] text = String.format("%.2f", value).getBytes(StandardCharsets.UTF_8);
+            System.arraycopy(text, 0, out, offset, text.length);
+            return offset + text.length;
+        }
+        // Exact, the float has 24 significant bits and 100 needs 7
+        double scaled = Math.abs((double) value) * 100;
+        long hundredths = (long) (scaled + 0.5);
+        if (Float.floatToRawIntBits(value) < 0) {
+            out[offset++] = '-';
+        }
+        offset = formatLong(hundredths / 100, out, offset);
+        int fraction = (int) (hundredths % 100);
+        out[offset++] = '.';
+        out[offset++] = (byte) ('0' + fraction / 10);
+        out[offset++] = (byte) ('0' + fraction % 10);
+        return offset;
+    }
+
+    private static int formatLong(long value, byte[] out, int offset) {
+        int digits = 1;
+        for (long remaining = value / 10; remaining > 0; remaining /= 10) {
+            digits++;
+        }
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            out[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return offset + digits;
+    }
+}
@@ -0,0 +1,233 @@
+package org.example.conditionVariables;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Streaming parser for the text matrices format: N lines of comma separated floats, then an empty line
+// Scanner matches every line with regular expressions, split() creates an array and a String per value
+// and Float.valueOf parses that String again. Here the bytes are read from the FileChannel in 1 MB blocks
+// and every number is parsed in place from the byte array into a float, no String is created
+// Before a value is parsed at least MAX_TOKEN bytes are kept in the buffer, so a number of the fast path never
+// crosses a refill. Longer numbers are moved to the start of the buffer and refilled while they are scanned
+// Values with up to 15 digits, at most 8 of them decimals, are computed as digits / 10^decimals in double:
+// both operands are exact and the quotient is far enough from a float rounding boundary, so rounding it to
+// float gives the same value as Float.parseFloat. Other values (exponents, long fractions) use Float.parseFloat
+// N is the number of values in the first line
+public class TextMatrixReader implements MatrixPairReader {
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int MAX_TOKEN = 64;
+    private static final int MAX_FAST_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8};
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final byte[] bytes;
+    private final int n;
+    private int position = 0;
+    private int limit = 0;
+    private boolean endOfFile = false;
+    private long line = 1;
+
+    public TextMatrixReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        this.bytes = buffer.array();
+        try {
+            this.n = countFirstLineValues();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private int countFirstLineValues() throws IOException {
+        ensure(BUFFER_SIZE);
+        if (position == limit) {
+            return 0;
+        }
+        int values = 1;
+        for (int i = position; i < limit && bytes[i] != '\n'; i++) {
+            if (bytes[i] == ',') {
+                values++;
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public boolean readPair(float[] matrixA, float[] matrixB) throws IOException {
+        return readMatrix(matrixA) && readMatrix(matrixB);
+    }
+
+    // Read the next matrix (row-major, N * N floats) and the empty line after it, false at the end of the file
+    public boolean readMatrix(float[] matrix) throws IOException {
+        for (int r = 0; r < n; r++) {
+            for (int c = 0; c < n; c++) {
+                ensure(MAX_TOKEN);
+                skipSpaces();
+                if (r == 0 && c == 0 && (position == limit || bytes[position] == '\n' || bytes[position] == '\r')) {
+                    // Nothing left but empty lines
+                    skipEmptyLines();
+                    if (position == limit) {
+                        return false;
+                    }
+                    skipSpaces();
+                }
+                matrix[r * n + c] = parseFloat();
+                ensure(MAX_TOKEN);
+                skipSpaces();
+                if (c < n - 1) {
+                    expect(',');
+                }
+            }
+            endOfLine();
+        }
+        // Empty line after the matrix, missing at the end of the file is fine
+        ensure(MAX_TOKEN);
+        skipSpaces();
+        if (position < limit) {
+            endOfLine();
+        }
+        return true;
+    }
+
+    private float parseFloat() throws IOException {
+        int start = position;
+        boolean negative = false;
+        if (position < limit && (bytes[position] == '-' || bytes[position] == '+')) {
+            negative = bytes[position] == '-';
+            position++;
+        }
+        long digits = 0;
+        int digitCount = 0;
+        int decimals = 0;
+        while (position < limit && isDigit(bytes[position])) {
+            digits = digits * 10 + (bytes[position++] - '0');
+            digitCount++;
+        }
+        if (position < limit && bytes[position] == '.') {
+            position++;
+            while (position < limit && isDigit(bytes[position])) {
+                digits = digits * 10 + (bytes[position++] - '0');
+                digitCount++;
+                decimals++;
+            }
+        }
+        if (digitCount == 0 && !(position < limit && isLetter(bytes[position]))) {
+            throw error("Expected a number");
+        }
+        if (digitCount > MAX_FAST_DIGITS || decimals >= POWERS_OF_TEN.length
+                || position < limit && isLetter(bytes[position])) {
+            // Exponent, NaN, Infinity or too many digits for the exact fast path
+            while (true) {
+                while (position < limit && bytes[position] != ',' && bytes[position] != '\n' && bytes[position] != '\r'
+                        && bytes[position] != ' ') {
+                    position++;
+                }
+                if (position < limit || endOfFile) {
+                    break;
+                }
+                // The number continues after the buffer, keep it and read more
+                int length = position - start;
+                if (length + MAX_TOKEN > BUFFER_SIZE) {
+                    throw error("Number longer than " + (BUFFER_SIZE - MAX_TOKEN) + " bytes");
+                }
+                position = start;
+                ensure(length + MAX_TOKEN);
+                start = position;
+                position = start + length;
+            }
+            try {
+                return Float.parseFloat(new String(bytes, start, position - start, StandardCharsets.ISO_8859_1));
+            } catch (NumberFormatException e) {
+                throw error("Invalid number");
+            }
+        }
+        double value = digits / POWERS_OF_TEN[decimals];
+        return (float) (negative ? -value : value);
+    }
+
+    private static boolean isDigit(byte value) {
+        return value >= '0' && value <= '9';
+    }
+
+    private static boolean isLetter(byte value) {
+        return value >= 'A' && value <= 'Z' || value >= 'a' && value <= 'z';
+    }
+
+    private void skipSpaces() {
+        while (position < limit && (bytes[position] == ' ' || bytes[position] == '\t')) {
+            position++;
+        }
+    }
+
+    private void skipEmptyLines() throws IOException {
+        while (true) {
+            ensure(MAX_TOKEN);
+            skipSpaces();
+            if (position < limit && bytes[position] == '\r') {
+                position++;
+            }
+            if (position == limit || bytes[position] != '\n') {
+                return;
+            }
+            position++;
+            line++;
+        }
+    }
+
+    private void expect(char expected) throws IOException {
+        if (position == limit || bytes[position] != expected) {
+            throw error("Expected '" + expected + "'");
+        }
+        position++;
+    }
+
+    // Line ends with \n or \r\n, the last line of the file may have neither
+    private void endOfLine() throws IOException {
+        if (position < limit && bytes[position] == '\r') {
+            position++;
+        }
+        if (position < limit) {
+            expect('\n');
+            line++;
+        }
+    }
+
+    // Keep at least count bytes after position in the buffer unless the file ends before
+    private void ensure(int count) throws IOException {
+        if (limit - position >= count || endOfFile) {
+            return;
+        }
+        System.arraycopy(bytes, position, bytes, 0, limit - position);
+        limit -= position;
+        position = 0;
+        buffer.clear().position(limit);
+        while (limit < count) {
+            int read = channel.read(buffer);
+            if (read < 0) {
+                endOfFile = true;
+                return;
+            }
+            limit += read;
+        }
+    }
+
+    private IOException error(String message) {
+        return new IOException(message + " in line " + line);
+    }
+
+    @Override
+    public int getN() {
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
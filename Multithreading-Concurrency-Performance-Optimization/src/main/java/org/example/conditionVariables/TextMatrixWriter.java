@@ -0,0 +1,64 @@
+package org.example.conditionVariables;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Writes matrices in the text format through a FileChannel, formatted by TextMatrixFormat row by row into a 1 MB buffer
+// The output is byte-identical to the StringJoiner + String.format("%.2f") writer it replaces
+public class TextMatrixWriter implements AutoCloseable {
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final int n;
+    private final ByteBuffer buffer;
+    private final byte[] bytes;
+    private int position = 0;
+
+    public TextMatrixWriter(Path path, int n) throws IOException {
+        if (n < 1) {
+            throw new IllegalArgumentException("Matrix size must be positive: " + n);
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.n = n;
+        this.buffer = ByteBuffer.allocate(Math.max(BUFFER_SIZE, TextMatrixFormat.maxRowBytes(n) + 1));
+        this.bytes = buffer.array();
+    }
+
+    // Append an N x N matrix (row-major, N * N floats) and the empty line after it
+    public void writeMatrix(float[] matrix) throws IOException {
+        for (int r = 0; r < n; r++) {
+            // One more byte for the empty line after the last row
+            if (bytes.length - position < TextMatrixFormat.maxRowBytes(n) + 1) {
+                flush();
+            }
+            position = TextMatrixFormat.formatRow(matrix, r * n, n, bytes, position);
+        }
+        bytes[position++] = '\n';
+    }
+
+    public void writePair(float[] matrixA, float[] matrixB) throws IOException {
+        writeMatrix(matrixA);
+        writeMatrix(matrixB);
+    }
+
+    private void flush() throws IOException {
+        buffer.clear().limit(position);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        position = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package org.example.conditionVariables;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Thread-safe bounded queue with a lock and one condition variable per reason to wait
+// With several consumers a single wait set would wake consumers when space frees up and the producer
+// when an item arrives, separate conditions only signal the threads that can make progress
+public class ThreadSafeQueue<T> implements HandoffQueue<T> {
+    private final Queue<T> queue = new ArrayDeque<>();
+    private final Lock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private boolean isTerminate = false;
+
+    // Max capacity for the queue to prevent unlimited growth
+    private final int maxCapacity;
+
+    public ThreadSafeQueue(int maxCapacity) {
+        this.maxCapacity = maxCapacity;
+    }
+
+    // Add an item to the queue, waits while the queue is full
+    @Override
+    public void add(T item) throws InterruptedException {
+        lock.lock();
+        try {
+            while (queue.size() == maxCapacity) {
+                notFull.await();
+            }
+            queue.add(item);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Remove and return an item from the queue, null once the queue is terminated and empty
+    @Override
+    public T remove() {
+        lock.lock();
+        try {
+            // Wait while the queue is empty and not terminated
+            while (queue.isEmpty() && !isTerminate) {
+                notEmpty.awaitUninterruptibly();
+            }
+            if (queue.isEmpty()) {
+                return null;
+            }
+            // Notify the producer that there is space again
+            T item = queue.remove();
+            notFull.signal();
+            return item;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Terminate the queue to signal no more items will be added, every waiting consumer wakes up
+    @Override
+    public void terminate() {
+        lock.lock();
+        try {
+            isTerminate = true;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package org.example.conditionVariables;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.Arrays;
+
+// Tiled kernel with the innermost loops on the Vector API (jdk.incubator.vector)
+// The result is computed in tiles of blockSize rows and columns, k runs through blockSize rows of b at a time.
+// That blockSize x blockSize tile of b is first copied into a contiguous array: the rows of b are N floats apart,
+// for N a power of two they all map to the same few cache sets and evict each other (1024 x 1024 ran at half speed).
+// The tile array is kept per thread and only grows, consumers and fork/join workers call multiply for every pair or band
+// Within a tile, four vectors of adjacent result columns are kept in registers while k runs through the tile:
+// each k adds a[r][k] times four vectors of row k of the tile, the result is only loaded and stored once per tile.
+// Four independent sums hide the latency of the additions, one sum would wait for the previous add every step.
+// Multiply and add stay separate operations (no fma), so every element gets the same sum as the naive loop
+// Columns left over after the vectors are done by a scalar loop
+// Only load this class through MatrixKernels, it fails to link when the incubator module is not resolved
+public class VectorMatrixKernel implements MatrixKernel {
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+    // Packed tile of b, every multiply overwrites the part it uses before reading it
+    private static final ThreadLocal<float[]> PACKED_TILES = ThreadLocal.withInitial(() -> new float[0]);
+
+    private final int blockSize;
+
+    public VectorMatrixKernel() {
+        this(BlockedMatrixKernel.DEFAULT_BLOCK_SIZE);
+    }
+
+    public VectorMatrixKernel(int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public void multiply(float[] a, float[] b, float[] c, int n, int fromRow, int toRow) {
+        Arrays.fill(c, fromRow * n, toRow * n, 0);
+        int tile = Math.min(blockSize, n);
+        float[] packed = PACKED_TILES.get();
+        if (packed.length < tile * tile) {
+            packed = new float[tile * tile];
+            PACKED_TILES.set(packed);
+        }
+        for (int rowBlock = fromRow; rowBlock < toRow; rowBlock += blockSize) {
+            int rowEnd = Math.min(rowBlock + blockSize, toRow);
+            for (int colBlock = 0; colBlock < n; colBlock += blockSize) {
+                int width = Math.min(colBlock + blockSize, n) - colBlock;
+                for (int kBlock = 0; kBlock < n; kBlock += blockSize) {
+                    int depth = Math.min(kBlock + blockSize, n) - kBlock;
+                    for (int k = 0; k < depth; k++) {
+                        System.arraycopy(b, (kBlock + k) * n + colBlock, packed, k * width, width);
+                    }
+                    for (int r = rowBlock; r < rowEnd; r++) {
+                        multiplyRow(a, r * n + kBlock, packed, width, depth, c, r * n + colBlock);
+                    }
+                }
+            }
+        }
+    }
+
+    // Add a row of a (depth values from aIndex) times the packed tile (depth rows of width) to width values of c
+    private static void multiplyRow(float[] a, int aIndex, float[] packed, int width, int depth, float[] c, int cIndex) {
+        int col = 0;
+        for (; col + 4 * LANES <= width; col += 4 * LANES) {
+            FloatVector sum0 = FloatVector.fromArray(SPECIES, c, cIndex + col);
+            FloatVector sum1 = FloatVector.fromArray(SPECIES, c, cIndex + col + LANES);
+            FloatVector sum2 = FloatVector.fromArray(SPECIES, c, cIndex + col + 2 * LANES);
+            FloatVector sum3 = FloatVector.fromArray(SPECIES, c, cIndex + col + 3 * LANES);
+            for (int k = 0; k < depth; k++) {
+                float aValue = a[aIndex + k];
+                int bIndex = k * width + col;
+                sum0 = sum0.add(FloatVector.fromArray(SPECIES, packed, bIndex).mul(aValue));
+                sum1 = sum1.add(FloatVector.fromArray(SPECIES, packed, bIndex + LANES).mul(aValue));
+                sum2 = sum2.add(FloatVector.fromArray(SPECIES, packed, bIndex + 2 * LANES).mul(aValue));
+                sum3 = sum3.add(FloatVector.fromArray(SPECIES, packed, bIndex + 3 * LANES).mul(aValue));
+            }
+            sum0.intoArray(c, cIndex + col);
+            sum1.intoArray(c, cIndex + col + LANES);
+            sum2.intoArray(c, cIndex + col + 2 * LANES);
+            sum3.intoArray(c, cIndex + col + 3 * LANES);
+        }
+        for (; col + LANES <= width; col += LANES) {
+            FloatVector sum = FloatVector.fromArray(SPECIES, c, cIndex + col);
+            for (int k = 0; k < depth; k++) {
+                sum = sum.add(FloatVector.fromArray(SPECIES, packed, k * width + col).mul(a[aIndex + k]));
+            }
+            sum.intoArray(c, cIndex + col);
+        }
+        for (; col < width; col++) {
+            float sum = c[cIndex + col];
+            for (int k = 0; k < depth; k++) {
+                sum += a[aIndex + k] * packed[k * width + col];
+            }
+            c[cIndex + col] = sum;
+        }
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    // Fewer than 4 float lanes means the CPU has no usable SIMD unit,
+    // the Vector API would then run its much slower Java fallback
+    static boolean isSupported() {
+        return LANES >= 4;
+    }
+
+    static int lanes() {
+        return LANES;
+    }
+}
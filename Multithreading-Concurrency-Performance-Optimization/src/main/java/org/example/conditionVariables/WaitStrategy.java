@@ -0,0 +1,35 @@
+package org.example.conditionVariables;
+
+import java.util.concurrent.locks.LockSupport;
+
+// How a RingBufferQueue thread waits for a slot or an item
+// SPIN burns its core and reacts within nanoseconds, only for threads that have a core of their own
+// YIELD spins briefly, then gives the core to other runnable threads between checks
+// PARK spins and yields briefly, then sleeps for a few microseconds between checks: no signal is needed to wake up,
+//   so the producer and consumers never pay for a wake-up call, at the price of latency when the queue runs dry
+//   and idle threads cost (almost) no CPU
+public enum WaitStrategy {
+    SPIN,
+    YIELD,
+    PARK;
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 200;
+    private static final long PARK_NANOS = 10_000;
+
+    // Wait once, attempt counts the waits since the thread last made progress
+    void idle(int attempt) {
+        if (this == SPIN || attempt < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else if (this == YIELD || attempt < YIELD_TRIES) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    }
+
+    // Parse wait strategy from a command line value, e.g. "park"
+    public static WaitStrategy fromString(String value) {
+        return valueOf(value.trim().toUpperCase().replace('-', '_'));
+    }
+}
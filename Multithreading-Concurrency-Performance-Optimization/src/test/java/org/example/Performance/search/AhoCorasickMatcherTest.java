@@ -0,0 +1,74 @@
+package org.example.Performance.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class AhoCorasickMatcherTest {
+    // ASCII, Latin-1, CJK and a char outside every word
+    private static final String CHARS = "abcé中xyzÿĀ ";
+
+    @Test
+    void denseAndSparseAutomataCountLikeIndexOf() {
+        Random random = new Random(1);
+        for (int round = 0; round < 2000; round++) {
+            String text = randomString(random, CHARS, random.nextInt(300));
+            List<String> words = new ArrayList<>();
+            for (int w = random.nextInt(6) + 1; w > 0; w--) {
+                words.add(randomString(random, CHARS.substring(0, CHARS.length() - 1), random.nextInt(4)));
+            }
+            long[] expected = countWithIndexOf(text, words);
+            int split = random.nextInt(text.length() + 1);
+            // A budget of 0 forces the sparse automaton
+            for (AhoCorasickMatcher matcher : List.of(new AhoCorasickMatcher(words), new AhoCorasickMatcher(words, 0))) {
+                long[] counts = matcher.countAll(text, 0, split);
+                long[] rest = matcher.countAll(text, split, text.length());
+                for (int w = 0; w < counts.length; w++) {
+                    counts[w] += rest[w];
+                }
+                assertArrayEquals(expected, counts, () -> words + " in " + text);
+            }
+        }
+    }
+
+    @Test
+    void largeBatchesFallBackToTheSparseAutomaton() {
+        // 5 000 states over 95 symbols are above the dense budget
+        Random random = new Random(2);
+        StringBuilder printable = new StringBuilder();
+        for (char c = ' '; c < 127; c++) {
+            printable.append(c);
+        }
+        List<String> words = new ArrayList<>();
+        for (int w = 0; w < 100; w++) {
+            words.add(randomString(random, printable.toString(), 50));
+        }
+        String text = randomString(random, printable.toString(), 10_000) + words.get(7) + words.get(7).substring(0, 20);
+        assertArrayEquals(countWithIndexOf(text, words), new AhoCorasickMatcher(words, 100_000).countAll(text));
+    }
+
+    private static long[] countWithIndexOf(String text, List<String> words) {
+        long[] counts = new long[words.size()];
+        for (int w = 0; w < words.size(); w++) {
+            String word = words.get(w);
+            if (!word.isEmpty()) {
+                for (int i = text.indexOf(word); i >= 0; i = text.indexOf(word, i + 1)) {
+                    counts[w]++;
+                }
+            }
+        }
+        return counts;
+    }
+
+    private static String randomString(Random random, String chars, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(chars.charAt(random.nextInt(chars.length())));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,111 @@
+package org.example.Performance.server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.example.Performance.server.RawHttp.assertResponse;
+import static org.example.Performance.server.RawHttp.send;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Talks raw HTTP/1.1 to the HttpServer engine over a socket, the answers must match the NIO engine
+@Timeout(value = 10, unit = TimeUnit.SECONDS)
+class HttpServerEngineTest {
+    private ServerEngine server;
+    private int port;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        server = new HttpServerEngine(new ServerConfig(null).setPort(port).setThreads(1));
+        // Answers with the method, the query and the length of the body, e.g. "POST null 5"
+        server.addEndpoint("/echo", new EndpointHandler() {
+            @Override
+            public void respond(String method, String query, byte[] body, ResponseBuffer response) {
+                response.append((method + " " + query + " " + body.length).getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        server.addEndpoint("/fail", new EndpointHandler() {
+            @Override
+            public void respond(String method, String query, byte[] body, ResponseBuffer response) throws IOException {
+                if ("bad".equals(query)) {
+                    throw new IllegalArgumentException("Bad query");
+                }
+                if ("busy".equals(query)) {
+                    throw new ServiceUnavailableException("Busy");
+                }
+                if ("io".equals(query)) {
+                    throw new IOException("Disk gone");
+                }
+                throw new IllegalStateException("Bug");
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    void mapsExceptionsToStatusCodes() throws IOException {
+        try (Socket socket = new Socket("localhost", port)) {
+            InputStream input = socket.getInputStream();
+            send(socket, "GET /fail?bad HTTP/1.1\r\nHost: test\r\n\r\n");
+            assertResponse(input, false, 400, "");
+            send(socket, "GET /fail?busy HTTP/1.1\r\nHost: test\r\n\r\n");
+            assertEquals("1", assertResponse(input, false, 503, "").retryAfter);
+            send(socket, "GET /fail?io HTTP/1.1\r\nHost: test\r\n\r\n");
+            assertResponse(input, false, 500, "");
+            send(socket, "GET /fail HTTP/1.1\r\nHost: test\r\n\r\n");
+            assertResponse(input, false, 500, "");
+            send(socket, "GET /echo?word=war HTTP/1.1\r\nHost: test\r\n\r\n");
+            assertResponse(input, false, 200, "GET word=war 0");
+            send(socket, "GET /missing HTTP/1.1\r\nHost: test\r\n\r\n");
+            assertResponse(input, false, 404, "");
+            // Endpoints match the exact path only, not every path under it
+            send(socket, "GET /echo/more HTTP/1.1\r\nHost: test\r\n\r\n");
+            assertResponse(input, false, 404, "");
+        }
+    }
+
+    @Test
+    void rejectsBodiesOverTheLimit() throws IOException {
+        try (Socket socket = new Socket("localhost", port)) {
+            send(socket, "POST /echo HTTP/1.1\r\nHost: test\r\nContent-Length: 999999999\r\n\r\n");
+            assertResponse(socket.getInputStream(), false, 413, "");
+        }
+        // Without a declared length the body is read up to the limit only
+        try (Socket socket = new Socket("localhost", port)) {
+            send(socket, "POST /echo HTTP/1.1\r\nHost: test\r\nTransfer-Encoding: chunked\r\n\r\n");
+            OutputStream output = socket.getOutputStream();
+            byte[] chunk = new byte[64 * 1024];
+            byte[] chunkHead = (Integer.toHexString(chunk.length) + "\r\n").getBytes(StandardCharsets.US_ASCII);
+            for (int written = 0; written <= EndpointHandler.MAX_BODY_SIZE; written += chunk.length) {
+                output.write(chunkHead);
+                output.write(chunk);
+                output.write('\r');
+                output.write('\n');
+            }
+            output.write("0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            output.flush();
+            assertResponse(socket.getInputStream(), false, 413, "");
+        }
+        try (Socket socket = new Socket("localhost", port)) {
+            send(socket, "POST /echo HTTP/1.1\r\nHost: test\r\nContent-Length: 5\r\n\r\nhello");
+            assertResponse(socket.getInputStream(), false, 200, "POST null 5");
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package org.example.Performance.server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.example.Performance.server.RawHttp.assertResponse;
+import static org.example.Performance.server.RawHttp.readResponse;
+import static org.example.Performance.server.RawHttp.send;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Talks raw HTTP/1.1 to the NIO engine over a socket
+@Timeout(value = 10, unit = TimeUnit.SECONDS)
+class NioServerEngineTest {
+    private ServerEngine server;
+    private int port;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        server = new NioServerEngine(new ServerConfig(null).setPort(port).setThreads(1));
+        // Answers with the method, the query and the body, e.g. "GET word=war "
+        server.addEndpoint("/echo", new EndpointHandler() {
+            @Override
+            public void respond(String method, String query, byte[] body, ResponseBuffer response) {
+                response.append((method + " " + query + " " + new String(body, StandardCharsets.UTF_8))
+                        .getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        server.addEndpoint("/fail", new EndpointHandler() {
+            @Override
+            public void respond(String method, String query, byte[] body, ResponseBuffer response) {
+                if ("bad".equals(query)) {
+                    throw new IllegalArgumentException("Bad query");
+                }
+                if ("busy".equals(query)) {
+                    throw new ServiceUnavailableException("Busy");
+                }
+                throw new IllegalStateException("Bug");
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    void answersPipelinedRequestsInOrder() throws IOException {
+        try (Socket socket = new Socket("localhost", port)) {
+            send(socket, "GET /echo?a HTTP/1.1\r\nHost: test\r\n\r\n"
+                    + "POST /echo?b HTTP/1.1\r\nHost: test\r\nContent-Length: 5\r\n\r\nhello"
+                    + "GET /echo?c HTTP/1.1\r\nHost: test\r\n\r\n");
+            InputStream input = socket.getInputStream();
+            assertResponse(input, false, 200, "GET a ");
+            assertResponse(input, false, 200, "POST b hello");
+            assertResponse(input, false, 200, "GET c ");
+        }
+    }
+
+    @Test
+    void headResponseHasContentLengthButNoBody() throws IOException {
+        try (Socket socket = new Socket("localhost", port)) {
+            send(socket, "HEAD /echo?word=war HTTP/1.1\r\nHost: test\r\n\r\n"
+                    + "GET /echo?word=war HTTP/1.1\r\nHost: test\r\n\r\n");
+            InputStream input = socket.getInputStream();
+            RawHttp.Response head = readResponse(input, true);
+            assertEquals(200, head.status);
+            assertEquals("HEAD word=war ".length(), head.contentLength);
+            assertEquals("", head.body);
+            // The next response follows the headers directly
+            assertResponse(input, false, 200, "GET word=war ");
+        }
+    }
+
+    @Test
+    void mapsExceptionsToStatusCodes() throws IOException {
+        try (Socket socket = new Socket("localhost", port)) {
+            send(socket, "GET /fail?bad HTTP/1.1\r\n\r\n" + "GET /fail?busy HTTP/1.1\r\n\r\n"
+                    + "GET /fail HTTP/1.1\r\n\r\n" + "GET /missing HTTP/1.1\r\n\r\n" + "GET /echo/more HTTP/1.1\r\n\r\n");
+            InputStream input = socket.getInputStream();
+            assertResponse(input, false, 400, "");
+            assertEquals("1", assertResponse(input, false, 503, "").retryAfter);
+            assertResponse(input, false, 500, "");
+            assertResponse(input, false, 404, "");
+            // Endpoints match the exact path only
+            assertResponse(input, false, 404, "");
+        }
+    }
+
+    @Test
+    void closesTheConnectionAfterMalformedOrOversizedRequests() throws IOException {
+        try (Socket socket = new Socket("localhost", port)) {
+            send(socket, "NONSENSE\r\n\r\nGET /echo HTTP/1.1\r\n\r\n");
+            InputStream input = socket.getInputStream();
+            assertResponse(input, false, 400, "");
+            assertEquals(-1, input.read());
+        }
+        try (Socket socket = new Socket("localhost", port)) {
+            send(socket, "POST /echo HTTP/1.1\r\nContent-Length: 999999999\r\n\r\n");
+            InputStream input = socket.getInputStream();
+            assertResponse(input, false, 413, "");
+            assertEquals(-1, input.read());
+        }
+        try (Socket socket = new Socket("localhost", port)) {
+            send(socket, "GET /echo HTTP/1.1\r\nConnection: close\r\n\r\n");
+            InputStream input = socket.getInputStream();
+            assertResponse(input, false, 200, "GET null ");
+            assertEquals(-1, input.read());
+        }
+    }
+
+    @Test
+    void waitsForTheRestOfASplitRequest() throws IOException, InterruptedException {
+        try (Socket socket = new Socket("localhost", port)) {
+            send(socket, "POST /echo HTTP/1.1\r\nContent-");
+            Thread.sleep(50);
+            send(socket, "Length: 3\r\n\r\nab");
+            Thread.sleep(50);
+            send(socket, "c");
+            assertResponse(socket.getInputStream(), false, 200, "POST null abc");
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package org.example.Performance.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Raw HTTP/1.1 over a socket for the engine tests, so the framing of every response is checked byte by byte
+final class RawHttp {
+    private RawHttp() {
+    }
+
+    static void send(Socket socket, String request) throws IOException {
+        OutputStream output = socket.getOutputStream();
+        output.write(request.getBytes(StandardCharsets.US_ASCII));
+        output.flush();
+    }
+
+    static Response assertResponse(InputStream input, boolean head, int status, String body) throws IOException {
+        Response response = readResponse(input, head);
+        assertEquals(status, response.status);
+        assertEquals(body.length(), response.contentLength);
+        assertEquals(body, response.body);
+        return response;
+    }
+
+    // Read one response: the status line, the headers and Content-Length bytes of body (none for HEAD)
+    static Response readResponse(InputStream input, boolean head) throws IOException {
+        Response response = new Response();
+        String statusLine = readLine(input);
+        response.status = Integer.parseInt(statusLine.split(" ")[1]);
+        for (String line = readLine(input); !line.isEmpty(); line = readLine(input)) {
+            int colon = line.indexOf(':');
+            String name = line.substring(0, colon).toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).trim();
+            if (name.equals("content-length")) {
+                response.contentLength = Integer.parseInt(value);
+            } else if (name.equals("retry-after")) {
+                response.retryAfter = value;
+            }
+        }
+        byte[] body = head ? new byte[0] : input.readNBytes(response.contentLength);
+        assertEquals(head ? 0 : response.contentLength, body.length, "Truncated body");
+        response.body = new String(body, StandardCharsets.UTF_8);
+        return response;
+    }
+
+    private static String readLine(InputStream input) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int previous = -1;
+        for (int b = input.read(); b >= 0; b = input.read()) {
+            if (previous == '\r' && b == '\n') {
+                byte[] bytes = line.toByteArray();
+                return new String(bytes, 0, bytes.length - 1, StandardCharsets.US_ASCII);
+            }
+            line.write(b);
+            previous = b;
+        }
+        throw new IOException("Connection closed in the middle of a response: " + line);
+    }
+
+    static class Response {
+        int status;
+        int contentLength = -1;
+        String retryAfter;
+        String body;
+    }
+}
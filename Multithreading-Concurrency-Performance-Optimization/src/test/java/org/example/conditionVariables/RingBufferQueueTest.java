@@ -0,0 +1,113 @@
+package org.example.conditionVariables;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RingBufferQueueTest {
+    private static final int ITEMS = 100_000;
+
+    @Test
+    void capacityIsRoundedUpToAPowerOfTwoOfAtLeastTwo() {
+        assertEquals(2, new RingBufferQueue<Integer>(1, WaitStrategy.PARK).getCapacity());
+        assertEquals(2, new RingBufferQueue<Integer>(2, WaitStrategy.PARK).getCapacity());
+        assertEquals(4, new RingBufferQueue<Integer>(3, WaitStrategy.PARK).getCapacity());
+        assertEquals(64, new RingBufferQueue<Integer>(64, WaitStrategy.PARK).getCapacity());
+        assertThrows(IllegalArgumentException.class, () -> new RingBufferQueue<Integer>(0, WaitStrategy.PARK));
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void addBlocksWhenFull() throws InterruptedException {
+        RingBufferQueue<Integer> queue = new RingBufferQueue<>(1, WaitStrategy.PARK);
+        Thread producer = new Thread(() -> {
+            try {
+                for (int i = 0; i < 5; i++) {
+                    queue.add(i);
+                }
+            } catch (InterruptedException e) {
+            }
+        });
+        producer.start();
+        producer.join(500);
+        assertTrue(producer.isAlive(), "Producer must wait once both slots are taken");
+        producer.interrupt();
+        producer.join();
+
+        assertEquals(0, queue.remove());
+        assertEquals(1, queue.remove());
+        queue.terminate();
+        assertNull(queue.remove());
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void capacityOneWithSeveralConsumers() throws InterruptedException {
+        assertEveryItemTakenOnce(new RingBufferQueue<>(1, WaitStrategy.PARK), 4);
+        assertEveryItemTakenOnce(new RingBufferQueue<>(1, WaitStrategy.YIELD), 3);
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void capacityTwoWithSeveralConsumers() throws InterruptedException {
+        assertEveryItemTakenOnce(new RingBufferQueue<>(2, WaitStrategy.PARK), 4);
+        assertEveryItemTakenOnce(new RingBufferQueue<>(2, WaitStrategy.YIELD), 3);
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void largerCapacityWithSeveralConsumers() throws InterruptedException {
+        assertEveryItemTakenOnce(new RingBufferQueue<>(64, WaitStrategy.PARK), 4);
+    }
+
+    private static void assertEveryItemTakenOnce(HandoffQueue<Integer> queue, int consumers) throws InterruptedException {
+        AtomicLongArray taken = new AtomicLongArray(ITEMS);
+        AtomicLong failures = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < consumers; i++) {
+            threads.add(new Thread(() -> {
+                for (Integer item = queue.remove(); item != null; item = queue.remove()) {
+                    if (taken.incrementAndGet(item) != 1) {
+                        failures.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        Thread producer = new Thread(() -> {
+            try {
+                for (int i = 0; i < ITEMS; i++) {
+                    queue.add(i);
+                }
+            } catch (InterruptedException e) {
+                failures.incrementAndGet();
+            } finally {
+                queue.terminate();
+            }
+        });
+        threads.add(producer);
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(0, failures.get(), "Items taken more than once");
+        for (int i = 0; i < ITEMS; i++) {
+            assertEquals(1, taken.get(i), "Item " + i + " taken " + taken.get(i) + " times");
+        }
+        assertNull(queue.remove());
+        assertFalse(producer.isAlive());
+    }
+}
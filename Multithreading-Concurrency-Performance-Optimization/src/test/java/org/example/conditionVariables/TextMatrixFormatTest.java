@@ -0,0 +1,58 @@
+package org.example.conditionVariables;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TextMatrixFormatTest {
+
+    @Test
+    void edgeValuesAreFormattedLikeStringFormat() {
+        float[] values = {0f, -0f, 0.005f, 0.015f, 0.025f, 0.125f, 0.995f, -0.004f, -0.005f, 1.005f, 2.675f, 123.455f,
+                9_999_999.995f, 1e13f, Math.nextDown(1e13f), -Math.nextDown(1e13f), Float.MIN_VALUE, Float.MIN_NORMAL,
+                Float.MAX_VALUE, -Float.MAX_VALUE, Float.NaN, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY};
+        for (float value : values) {
+            assertFormattedLikeStringFormat(value);
+        }
+    }
+
+    @Test
+    void randomValuesAreFormattedLikeStringFormat() {
+        Random random = new Random(1);
+        for (int i = 0; i < 200_000; i++) {
+            // Any bit pattern, the values of the generator and values close to a .xx5 tie
+            assertFormattedLikeStringFormat(Float.intBitsToFloat(random.nextInt()));
+            assertFormattedLikeStringFormat(random.nextFloat() * random.nextInt(100));
+            assertFormattedLikeStringFormat((random.nextInt(2_000_000) - 1_000_000 + 0.5f) / 100);
+        }
+    }
+
+    @Test
+    void matrixRowsAreJoinedWithCommaAndSpace() {
+        Random random = new Random(2);
+        int n = 7;
+        float[] matrix = new float[n * n];
+        StringBuilder expected = new StringBuilder();
+        for (int r = 0; r < n; r++) {
+            for (int c = 0; c < n; c++) {
+                matrix[r * n + c] = (random.nextFloat() - 0.5f) * random.nextInt(1000);
+                expected.append(c > 0 ? ", " : "").append(String.format("%.2f", matrix[r * n + c]));
+            }
+            expected.append('\n');
+        }
+        expected.append('\n');
+        byte[] out = new byte[n * TextMatrixFormat.maxRowBytes(n) + 1];
+        int length = TextMatrixFormat.formatMatrix(matrix, n, out, 0);
+        assertEquals(expected.toString(), new String(out, 0, length, StandardCharsets.UTF_8));
+    }
+
+    private static void assertFormattedLikeStringFormat(float value) {
+        byte[] out = new byte[TextMatrixFormat.maxRowBytes(1)];
+        int length = TextMatrixFormat.formatValue(value, out, 0);
+        assertEquals(String.format("%.2f", value), new String(out, 0, length, StandardCharsets.UTF_8),
+                () -> "Formatting " + Float.toString(value));
+    }
+}
@@ -0,0 +1,149 @@
+package org.example.conditionVariables;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TextMatrixReaderTest {
+    private static final int N = 3;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void valuesAreParsedLikeFloatParseFloat() throws IOException {
+        Random random = new Random(1);
+        List<String> tokens = new ArrayList<>();
+        // More than two buffers, so fast path and long numbers both cross a refill
+        for (int bytes = 0; bytes < 3 << 20; bytes += tokens.getLast().length() + 2) {
+            tokens.add(randomToken(random));
+        }
+        assertReadLikeParseFloat(tokens);
+    }
+
+    @Test
+    void numbersLongerThanTheRefillMarginAreReadWhole() throws IOException {
+        Random random = new Random(3);
+        List<String> tokens = new ArrayList<>();
+        // Every buffer boundary falls into one of these numbers
+        for (int bytes = 0; bytes < 3 << 20; bytes += tokens.getLast().length() + 2) {
+            StringBuilder token = new StringBuilder(random.nextInt(10) + ".");
+            for (int digits = 100 + random.nextInt(200); digits > 0; digits--) {
+                token.append(random.nextInt(10));
+            }
+            tokens.add(token.toString());
+        }
+        assertReadLikeParseFloat(tokens);
+    }
+
+    @Test
+    void edgeValuesAreParsedLikeFloatParseFloat() throws IOException {
+        assertReadLikeParseFloat(List.of("0", "-0.00", "+1.5", "0.1", "0.3", "16777217", "999999999999999",
+                "1234567.12345678", "0.123456789", "3.4028235E38", "3.4028236E38", "1.4E-45", "7E-46", "1e10", "-2.5e-3",
+                "NaN", "Infinity", "-Infinity", "0." + "0".repeat(100) + "1", "9".repeat(200) + ".5",
+                "0.000000000000000000000000000000000000000000011754942807573642917278829910357665133228589927589904",
+                "1.00000005960464477539062500000000000000000000000000000000000000000000000000001"));
+    }
+
+    @Test
+    void formattedMatricesAreReadBack() throws IOException {
+        Random random = new Random(2);
+        Path file = directory.resolve("matrices.txt");
+        List<float[]> written = new ArrayList<>();
+        try (TextMatrixWriter writer = new TextMatrixWriter(file, N)) {
+            for (int i = 0; i < 1000; i++) {
+                float[] matrix = new float[N * N];
+                for (int j = 0; j < matrix.length; j++) {
+                    matrix[j] = (random.nextFloat() - 0.5f) * random.nextInt(100_000);
+                }
+                writer.writeMatrix(matrix);
+                written.add(matrix);
+            }
+        }
+        try (TextMatrixReader reader = new TextMatrixReader(file)) {
+            assertEquals(N, reader.getN());
+            float[] matrix = new float[N * N];
+            for (float[] expected : written) {
+                assertTrue(reader.readMatrix(matrix));
+                for (int j = 0; j < matrix.length; j++) {
+                    assertEquals(Float.parseFloat(String.format("%.2f", expected[j])), matrix[j]);
+                }
+            }
+            assertFalse(reader.readMatrix(matrix));
+        }
+    }
+
+    @Test
+    void malformedInputIsRejectedWithItsLine() throws IOException {
+        assertEquals("Expected a number in line 2", readError("1, 2\n3, , 4\n"));
+        assertEquals("Expected ',' in line 1", readError("1 2, 3\n4, 5\n"));
+        assertEquals("Invalid number in line 1", readError("1, 2e\n3, 4\n"));
+        assertEquals("Number longer than " + ((1 << 20) - 64) + " bytes in line 1",
+                readError("1, 0." + "1".repeat(2 << 20) + "\n3, 4\n"));
+    }
+
+    // Writes the tokens as 3 x 3 matrices and checks every value against Float.parseFloat of its token
+    private void assertReadLikeParseFloat(List<String> tokens) throws IOException {
+        List<String> padded = new ArrayList<>(tokens);
+        while (padded.size() % (N * N) != 0) {
+            padded.add("0");
+        }
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < padded.size(); i++) {
+            text.append(padded.get(i)).append(i % N == N - 1 ? "\n" : ", ");
+            if (i % (N * N) == N * N - 1) {
+                text.append('\n');
+            }
+        }
+        Path file = directory.resolve("tokens.txt");
+        Files.writeString(file, text);
+        try (TextMatrixReader reader = new TextMatrixReader(file)) {
+            float[] matrix = new float[N * N];
+            for (int i = 0; i < padded.size(); i += N * N) {
+                assertTrue(reader.readMatrix(matrix));
+                for (int j = 0; j < N * N; j++) {
+                    String token = padded.get(i + j);
+                    assertEquals(Float.parseFloat(token), matrix[j], () -> "Parsing " + token);
+                }
+            }
+            assertFalse(reader.readMatrix(matrix));
+        }
+    }
+
+    private String readError(String text) throws IOException {
+        Path file = directory.resolve("malformed.txt");
+        Files.writeString(file, text);
+        try (TextMatrixReader reader = new TextMatrixReader(file)) {
+            float[] matrix = new float[reader.getN() * reader.getN()];
+            return assertThrows(IOException.class, () -> reader.readMatrix(matrix)).getMessage();
+        }
+    }
+
+    private static String randomToken(Random random) {
+        float value = Float.intBitsToFloat(random.nextInt());
+        float small = (random.nextFloat() - 0.5f) * random.nextInt(1_000_000);
+        return switch (random.nextInt(8)) {
+            case 0 -> Float.toString(value);
+            case 1 -> String.format("%.2f", small);
+            case 2 -> String.format("%.8f", small);
+            case 3 -> String.format("%.12f", small);
+            case 4 -> Integer.toString(random.nextInt());
+            case 5 -> Double.toString(random.nextDouble() * Math.pow(10, random.nextInt(60) - 30));
+            // Long exact decimal expansions, up to a few hundred bytes
+            case 6 -> new BigDecimal(small).toPlainString();
+            default -> new BigDecimal(Float.isFinite(value) ? value : 1f).toPlainString();
+        };
+    }
+}